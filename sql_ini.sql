@@ -6,8 +6,13 @@ CREATE TABLE swplanet.planet (
   climate VARCHAR(255) NULL,
   terrain VARCHAR(255) NULL,
   film_appearences INT NULL,
+  version BIGINT NOT NULL DEFAULT 0,
   PRIMARY KEY (id));
 
+CREATE INDEX planet_name_idx ON swplanet.planet (name);
+CREATE INDEX planet_climate_idx ON swplanet.planet (climate);
+CREATE INDEX planet_terrain_idx ON swplanet.planet (terrain);
+
 CREATE TABLE swplanet.user (
   id INT UNIQUE NOT NULL AUTO_INCREMENT,
   name VARCHAR(255) NOT NULL,
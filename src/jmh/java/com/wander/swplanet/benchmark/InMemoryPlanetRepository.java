@@ -0,0 +1,215 @@
+package com.wander.swplanet.benchmark;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.reactivestreams.Publisher;
+
+import com.wander.swplanet.domain.Planet;
+import com.wander.swplanet.domain.PlanetPageState;
+import com.wander.swplanet.repository.PlanetRepository;
+
+import io.r2dbc.spi.Row;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Heap-backed stand-in for the R2DBC repository, so benchmarks measure the service layer only.
+ */
+public class InMemoryPlanetRepository implements PlanetRepository {
+
+	private final ConcurrentNavigableMap<Integer, Planet> planets = new ConcurrentSkipListMap<>();
+	private final AtomicInteger sequence = new AtomicInteger();
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public <S extends Planet> Mono<S> save(S planet) {
+		return Mono.fromSupplier(() -> {
+			Planet saved = planet.getId() == null ? planet.withId(sequence.incrementAndGet()) : planet;
+			saved = saved.withVersion(saved.getVersion() == null ? 0L : saved.getVersion() + 1);
+			planets.put(saved.getId(), saved);
+			return (S) saved;
+		});
+	}
+
+	@Override
+	public <S extends Planet> Flux<S> saveAll(Iterable<S> entities) {
+		return Flux.fromIterable(entities).concatMap(this::save);
+	}
+
+	@Override
+	public <S extends Planet> Flux<S> saveAll(Publisher<S> entityStream) {
+		return Flux.from(entityStream).concatMap(this::save);
+	}
+
+	@Override
+	public Flux<Planet> insertAll(List<Planet> planets) {
+		return Flux.fromIterable(planets).concatMap(planet -> save(planet.withId(null)));
+	}
+
+	@Override
+	public Mono<Planet> findById(Integer id) {
+		return Mono.fromSupplier(() -> planets.get(id));
+	}
+
+	@Override
+	public Mono<Planet> findById(Publisher<Integer> id) {
+		return Mono.from(id).flatMap(this::findById);
+	}
+
+	@Override
+	public Mono<Boolean> existsById(Integer id) {
+		return Mono.fromSupplier(() -> planets.containsKey(id));
+	}
+
+	@Override
+	public Mono<Boolean> existsById(Publisher<Integer> id) {
+		return Mono.from(id).flatMap(this::existsById);
+	}
+
+	@Override
+	public Flux<Planet> findAll() {
+		return Flux.defer(() -> Flux.fromIterable(planets.values()));
+	}
+
+	@Override
+	public Flux<Planet> findAllById(Iterable<Integer> ids) {
+		return Flux.fromIterable(ids).concatMap(this::findById);
+	}
+
+	@Override
+	public Flux<Planet> findAllById(Publisher<Integer> idStream) {
+		return Flux.from(idStream).concatMap(this::findById);
+	}
+
+	@Override
+	public Flux<Planet> findPage(int after, int limit) {
+		return findAllAfter(after).take(limit);
+	}
+
+	@Override
+	public Flux<Planet> search(String namePrefix, String climate, String terrain, int after, int limit) {
+		return findAllAfter(after)
+				.filter(planet -> namePrefix == null || planet.getName().startsWith(namePrefix))
+				.filter(planet -> climate == null || climate.equals(planet.getClimate()))
+				.filter(planet -> terrain == null || terrain.equals(planet.getTerrain()))
+				.take(limit);
+	}
+
+	@Override
+	public Flux<Planet> findAllAfter(int after) {
+		return Flux.defer(() -> Flux.fromIterable(planets.tailMap(after, false).values()));
+	}
+
+	@Override
+	public Mono<PlanetPageState> findPageState(int after, int limit) {
+		return findPage(after, limit)
+				.collectList()
+				.map(page -> new PlanetPageState(page.size(), page.stream().mapToInt(Planet::getId).max().orElse(0),
+						page.stream().mapToLong(Planet::getId).sum(), page.stream().mapToLong(Planet::getVersion).sum()));
+	}
+
+	@Override
+	public <T> Flux<T> exportAll(int fetchSize, Function<Row, T> encoder) {
+		return Flux.defer(() -> Flux.fromIterable(planets.values()))
+				.map(planet -> encoder.apply(new PlanetRow(planet)));
+	}
+
+	@Override
+	public Mono<Integer> updatePlanet(int id, String name, String climate, String terrain, Long filmAppearences) {
+		return Mono.fromSupplier(() -> planets.computeIfPresent(id, (key, planet) -> new Planet(id, name, climate,
+				terrain, filmAppearences, planet.getVersion() + 1)) == null ? 0 : 1);
+	}
+
+	@Override
+	public Mono<Integer> updatePlanetVersion(int id, long version, String name, String climate, String terrain,
+			Long filmAppearences) {
+		return Mono.fromSupplier(() -> {
+			boolean[] updated = new boolean[1];
+			planets.computeIfPresent(id, (key, planet) -> {
+				if (planet.getVersion() != version) {
+					return planet;
+				}
+				updated[0] = true;
+				return new Planet(id, name, climate, terrain, filmAppearences, version + 1);
+			});
+			return updated[0] ? 1 : 0;
+		});
+	}
+
+	@Override
+	public Mono<Integer> deletePlanet(int id) {
+		return Mono.fromSupplier(() -> planets.remove(id) == null ? 0 : 1);
+	}
+
+	@Override
+	public Mono<Long> count() {
+		return Mono.fromSupplier(() -> (long) planets.size());
+	}
+
+	@Override
+	public Mono<Void> deleteById(Integer id) {
+		return deletePlanet(id).then();
+	}
+
+	@Override
+	public Mono<Void> deleteById(Publisher<Integer> id) {
+		return Mono.from(id).flatMap(this::deleteById);
+	}
+
+	@Override
+	public Mono<Void> delete(Planet planet) {
+		return deleteById(planet.getId());
+	}
+
+	@Override
+	public Mono<Void> deleteAll(Iterable<? extends Planet> entities) {
+		return Flux.fromIterable(entities).concatMap(this::delete).then();
+	}
+
+	@Override
+	public Mono<Void> deleteAll(Publisher<? extends Planet> entityStream) {
+		return Flux.from(entityStream).concatMap(this::delete).then();
+	}
+
+	@Override
+	public Mono<Void> deleteAll() {
+		return Mono.fromRunnable(planets::clear);
+	}
+
+	/**
+	 * A planet read as a row of the planet table.
+	 */
+	private static class PlanetRow implements Row {
+
+		private static final List<String> COLUMNS = List.of("id", "name", "climate", "terrain", "film_appearences",
+				"version");
+
+		private final List<Object> values;
+
+		PlanetRow(Planet planet) {
+			values = Arrays.asList(planet.getId(), planet.getName(), planet.getClimate(), planet.getTerrain(),
+					planet.getFilmAppearences(), planet.getVersion());
+		}
+
+		@Override
+		public <T> T get(int index, Class<T> type) {
+			return type.cast(values.get(index));
+		}
+
+		@Override
+		public <T> T get(String name, Class<T> type) {
+			int index = COLUMNS.indexOf(name);
+			if (index < 0) {
+				throw new IllegalArgumentException("Unknown column " + name);
+			}
+			return get(index, type);
+		}
+
+	}
+
+}
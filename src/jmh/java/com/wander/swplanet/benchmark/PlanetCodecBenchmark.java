@@ -0,0 +1,91 @@
+package com.wander.swplanet.benchmark;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wander.swplanet.codec.PlanetProtobuf;
+import com.wander.swplanet.domain.Planet;
+
+/**
+ * Encode and decode cost of the planet wire formats. Payload sizes are printed when the
+ * trial starts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PlanetCodecBenchmark {
+
+	private static final TypeReference<List<Planet>> PLANET_LIST = new TypeReference<>() {
+	};
+
+	@Param({ "json", "cbor", "smile", "protobuf" })
+	private String format;
+
+	private ObjectMapper objectMapper;
+	private Planet planet;
+	private byte[] planetBytes;
+	private List<Planet> planets;
+	private byte[] planetsBytes;
+
+	@Setup
+	public void setUp() throws Exception {
+		switch (format) {
+		case "cbor": objectMapper = Jackson2ObjectMapperBuilder.cbor().build(); break;
+		case "smile": objectMapper = Jackson2ObjectMapperBuilder.smile().build(); break;
+		default: objectMapper = Jackson2ObjectMapperBuilder.json().build();
+		}
+		planet = new Planet(1, "Tatooine", "arid", "desert", 5L, 0L);
+		planets = IntStream.rangeClosed(1, 100)
+				.mapToObj(id -> new Planet(id, "Planet " + id, "temperate, tropical", "jungle, rainforests", 1L, 0L))
+				.collect(Collectors.toList());
+		planetBytes = encodePlanet();
+		planetsBytes = encodePlanetList();
+		System.out.printf("%n%s: planet %d bytes, 100 planets %d bytes%n", format, planetBytes.length, planetsBytes.length);
+	}
+
+	@Benchmark
+	public byte[] encodePlanet() throws Exception {
+		return "protobuf".equals(format) ? PlanetProtobuf.encode(planet) : objectMapper.writeValueAsBytes(planet);
+	}
+
+	@Benchmark
+	public Planet decodePlanet() throws Exception {
+		return "protobuf".equals(format)
+				? PlanetProtobuf.decodePlanet(ByteBuffer.wrap(planetBytes))
+				: objectMapper.readValue(planetBytes, Planet.class);
+	}
+
+	@Benchmark
+	public byte[] encodePlanetList() throws Exception {
+		return "protobuf".equals(format) ? PlanetProtobuf.encode(planets) : objectMapper.writeValueAsBytes(planets);
+	}
+
+	@Benchmark
+	public List<Planet> decodePlanetList() throws Exception {
+		return "protobuf".equals(format)
+				? PlanetProtobuf.decodeList(ByteBuffer.wrap(planetsBytes))
+				: objectMapper.readValue(planetsBytes, PLANET_LIST);
+	}
+
+}
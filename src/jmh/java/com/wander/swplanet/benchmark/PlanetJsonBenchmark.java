@@ -0,0 +1,72 @@
+package com.wander.swplanet.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wander.swplanet.domain.Planet;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PlanetJsonBenchmark {
+
+	private static final TypeReference<List<Planet>> PLANET_LIST = new TypeReference<>() {
+	};
+
+	private ObjectMapper objectMapper;
+	private Planet planet;
+	private byte[] planetJson;
+	private List<Planet> planets;
+	private byte[] planetsJson;
+
+	@Setup
+	public void setUp() throws Exception {
+		objectMapper = Jackson2ObjectMapperBuilder.json().build();
+		planet = new Planet(1, "Tatooine", "arid", "desert", 5L, 0L);
+		planetJson = objectMapper.writeValueAsBytes(planet);
+		planets = IntStream.rangeClosed(1, 100)
+				.mapToObj(id -> new Planet(id, "Planet " + id, "temperate, tropical", "jungle, rainforests", 1L, 0L))
+				.collect(Collectors.toList());
+		planetsJson = objectMapper.writeValueAsBytes(planets);
+	}
+
+	@Benchmark
+	public byte[] encodePlanet() throws Exception {
+		return objectMapper.writeValueAsBytes(planet);
+	}
+
+	@Benchmark
+	public Planet decodePlanet() throws Exception {
+		return objectMapper.readValue(planetJson, Planet.class);
+	}
+
+	@Benchmark
+	public byte[] encodePlanetList() throws Exception {
+		return objectMapper.writeValueAsBytes(planets);
+	}
+
+	@Benchmark
+	public List<Planet> decodePlanetList() throws Exception {
+		return objectMapper.readValue(planetsJson, PLANET_LIST);
+	}
+
+}
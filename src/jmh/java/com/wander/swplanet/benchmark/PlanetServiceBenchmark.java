@@ -0,0 +1,122 @@
+package com.wander.swplanet.benchmark;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wander.swplanet.cache.CaffeinePlanetCache;
+import com.wander.swplanet.cache.PlanetCache;
+import com.wander.swplanet.cache.PlanetJsonCache;
+import com.wander.swplanet.client.SwapiCatalogue;
+import com.wander.swplanet.client.SwapiClient;
+import com.wander.swplanet.domain.Planet;
+import com.wander.swplanet.domain.PlanetPage;
+import com.wander.swplanet.index.PlanetFacetIndex;
+import com.wander.swplanet.service.PlanetInsertBatcher;
+import com.wander.swplanet.service.PlanetService;
+
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import reactor.core.publisher.Mono;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PlanetServiceBenchmark {
+
+	private static final int PLANETS = 10_000;
+
+	@Param({ "caffeine", "none" })
+	private String cache;
+
+	private PlanetService planetService;
+
+	@Setup
+	public void setUp() {
+		InMemoryPlanetRepository planetRepository = new InMemoryPlanetRepository();
+		for (int i = 1; i <= PLANETS; i++) {
+			planetRepository.save(new Planet(null, "Planet " + i, "arid", "desert", 1L, null)).block();
+		}
+		PlanetCache planetCache = "caffeine".equals(cache)
+				? new CaffeinePlanetCache(PLANETS, Duration.ofMinutes(10))
+				: new UncachedPlanetCache();
+		planetService = new PlanetService(planetRepository, planetCache,
+				new PlanetJsonCache(new ObjectMapper(), PLANETS, 16, 65536, Duration.ofMinutes(10)), disabledSwapiCatalogue(),
+				new PlanetFacetIndex(planetRepository, Duration.ofMinutes(10)), new PlanetInsertBatcher(planetRepository, Mockito.mock(TransactionalOperator.class), false, 64, Duration.ofMillis(5)),
+				Mockito.mock(TransactionalOperator.class));
+	}
+
+	static SwapiCatalogue disabledSwapiCatalogue() {
+		SwapiClient swapiClient = new SwapiClient(WebClient.create(), CircuitBreakerRegistry.ofDefaults(),
+				BulkheadRegistry.ofDefaults(), "", false, 1, Duration.ZERO);
+		return new SwapiCatalogue(WebClient.create(), swapiClient, "", 1, 1, Duration.ofHours(1), Duration.ZERO, false);
+	}
+
+	@Benchmark
+	public Planet findById() {
+		return planetService.findById(randomId()).block();
+	}
+
+	@Benchmark
+	public PlanetPage findPage() {
+		return planetService.findPage(randomId(), 100).block();
+	}
+
+	@Benchmark
+	public void update() {
+		int id = randomId();
+		planetService.update(new Planet(id, "Planet " + id, "temperate", "grasslands", 2L, null)).block();
+	}
+
+	@Benchmark
+	public void saveThenDelete() {
+		Planet saved = planetService.save(new Planet(null, "Alderaan", "temperate", "mountains", 2L, null)).block();
+		planetService.delete(saved.getId()).block();
+	}
+
+	private static int randomId() {
+		return ThreadLocalRandom.current().nextInt(1, PLANETS + 1);
+	}
+
+	static class UncachedPlanetCache implements PlanetCache {
+
+		@Override
+		public Mono<Planet> get(Integer id, Function<Integer, Mono<Planet>> loader) {
+			return loader.apply(id);
+		}
+
+		@Override
+		public void put(Planet planet) {
+		}
+
+		@Override
+		public void evict(Integer id) {
+		}
+
+		@Override
+		public void clear() {
+		}
+
+	}
+
+}
@@ -0,0 +1,170 @@
+package com.wander.swplanet.benchmark;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+import org.mockito.ArgumentMatchers;
+import org.mockito.BDDMockito;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.HttpHandler;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.http.server.reactive.MockServerHttpResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.springframework.web.reactive.config.EnableWebFlux;
+import org.springframework.web.server.adapter.WebHttpHandlerBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wander.swplanet.cache.CaffeinePlanetCache;
+import com.wander.swplanet.cache.PlanetJsonCache;
+import com.wander.swplanet.client.SwapiCatalogue;
+import com.wander.swplanet.config.SecurityConfig;
+import com.wander.swplanet.controller.PlanetController;
+import com.wander.swplanet.domain.Planet;
+import com.wander.swplanet.index.PlanetFacetIndex;
+import com.wander.swplanet.domain.User;
+import com.wander.swplanet.repository.UserRepository;
+import com.wander.swplanet.security.AuthenticationCache;
+import com.wander.swplanet.security.TokenService;
+import com.wander.swplanet.service.PlanetExporter;
+import com.wander.swplanet.service.PlanetImporter;
+import com.wander.swplanet.service.PlanetInsertBatcher;
+import com.wander.swplanet.service.PlanetService;
+import com.wander.swplanet.service.UserService;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Cost of GET /planets/{id} through the full WebFlux security filter chain, comparing
+ * HTTP Basic with and without the authentication cache against bearer tokens.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SecurityFilterChainBenchmark {
+
+	private static final User VADER = new User(2, "Darth Vader", "vader",
+			"{bcrypt}$2a$10$phn.lBNFQ85HEviDhRzhcOpHWokvBlgqeO9PAHcHA9OVa.W6aRhsG", "ROLE_USER,ROLE_ADMIN");
+
+	@Param({ "basic", "basic-uncached", "token" })
+	private String authentication;
+
+	private AnnotationConfigApplicationContext context;
+	private HttpHandler httpHandler;
+	private String authorization;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		boolean cached = !"basic-uncached".equals(authentication);
+		context = new AnnotationConfigApplicationContext();
+		context.getBeanFactory().setConversionService(ApplicationConversionService.getSharedInstance());
+		context.register(BenchmarkConfig.class);
+		context.registerBean(AuthenticationCache.class, () -> cached
+				? new AuthenticationCache(10_000, Duration.ofMinutes(5))
+				: new AuthenticationCache(0, Duration.ZERO));
+		context.refresh();
+		httpHandler = WebHttpHandlerBuilder.applicationContext(context).build();
+
+		if ("token".equals(authentication)) {
+			authorization = "Bearer " + context.getBean(TokenService.class)
+					.issue(new UsernamePasswordAuthenticationToken(VADER, null, VADER.getAuthorities()))
+					.getToken();
+		} else {
+			authorization = "Basic " + Base64.getEncoder().encodeToString("vader:empire".getBytes(StandardCharsets.UTF_8));
+		}
+		if (findById() != HttpStatus.OK) {
+			throw new IllegalStateException("GET /planets/1 is not authorized in the benchmark context");
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public HttpStatus findById() {
+		MockServerHttpRequest request = MockServerHttpRequest.get("/planets/1")
+				.header(HttpHeaders.AUTHORIZATION, authorization)
+				.build();
+		MockServerHttpResponse response = new MockServerHttpResponse();
+		httpHandler.handle(request, response).block();
+		return response.getStatusCode();
+	}
+
+	/**
+	 * Registered with the benchmark context only: as a {@code @Configuration} it would be
+	 * picked up by the component scan of the application once compiled into the test classes.
+	 */
+	@EnableWebFlux
+	@Import({ SecurityConfig.class, PlanetController.class, PlanetService.class, PlanetFacetIndex.class,
+		PlanetInsertBatcher.class, PlanetImporter.class, PlanetExporter.class, UserService.class, TokenService.class })
+	static class BenchmarkConfig {
+
+		@Bean
+		public InMemoryPlanetRepository planetRepository() {
+			InMemoryPlanetRepository planetRepository = new InMemoryPlanetRepository();
+			planetRepository.save(new Planet(null, "Tatooine", "arid", "desert", 5L, null)).block();
+			return planetRepository;
+		}
+
+		@Bean
+		public SwapiCatalogue swapiCatalogue() {
+			return PlanetServiceBenchmark.disabledSwapiCatalogue();
+		}
+
+		@Bean
+		public TransactionalOperator transactionalOperator() {
+			return Mockito.mock(TransactionalOperator.class);
+		}
+
+		@Bean
+		public ObjectMapper objectMapper() {
+			return new ObjectMapper();
+		}
+
+		@Bean
+		public PlanetJsonCache planetJsonCache(ObjectMapper objectMapper) {
+			return new PlanetJsonCache(objectMapper, 1000, 16, 65536, Duration.ofMinutes(10));
+		}
+
+		@Bean
+		public CaffeinePlanetCache planetCache() {
+			return new CaffeinePlanetCache(1000, Duration.ofMinutes(10));
+		}
+
+		@Bean
+		public UserRepository userRepository() {
+			UserRepository userRepository = Mockito.mock(UserRepository.class);
+			BDDMockito.when(userRepository.findByUsername(ArgumentMatchers.anyString()))
+				.thenReturn(Mono.just(VADER));
+			return userRepository;
+		}
+
+	}
+
+}
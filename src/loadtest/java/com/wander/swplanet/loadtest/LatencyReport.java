@@ -0,0 +1,95 @@
+package com.wander.swplanet.loadtest;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+/**
+ * Per operation latency histograms and error counts, with the number of failures for each
+ * reason, safe to record from any thread.
+ */
+class LatencyReport {
+
+	private static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(1);
+	private static final double NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+	private final Map<Operation, Recorder> recorders = new EnumMap<>(Operation.class);
+	private final Map<Operation, LongAdder> errors = new EnumMap<>(Operation.class);
+	private final Map<String, LongAdder> failures = new ConcurrentHashMap<>();
+
+	LatencyReport() {
+		for (Operation operation : Operation.values()) {
+			recorders.put(operation, new Recorder(HIGHEST_TRACKABLE_NANOS, 3));
+			errors.put(operation, new LongAdder());
+		}
+	}
+
+	void record(Operation operation, long elapsedNanos, boolean successful) {
+		recorders.get(operation).recordValue(Math.min(elapsedNanos, HIGHEST_TRACKABLE_NANOS));
+		if (!successful) {
+			errors.get(operation).increment();
+		}
+	}
+
+	/**
+	 * Why a request recorded as unsuccessful failed, such as its status and error message.
+	 */
+	void recordFailure(Operation operation, String reason) {
+		failures.computeIfAbsent(operation.key() + " " + reason, key -> new LongAdder()).increment();
+	}
+
+	void reset() {
+		recorders.values().forEach(Recorder::reset);
+		errors.values().forEach(LongAdder::reset);
+		failures.clear();
+	}
+
+	Map<String, Object> summarize(Duration elapsed) {
+		double seconds = elapsed.toNanos() / 1e9;
+		Histogram total = new Histogram(HIGHEST_TRACKABLE_NANOS, 3);
+		long totalErrors = 0;
+		Map<String, Object> operations = new LinkedHashMap<>();
+		for (Operation operation : Operation.values()) {
+			Histogram histogram = recorders.get(operation).getIntervalHistogram();
+			long operationErrors = errors.get(operation).sum();
+			total.add(histogram);
+			totalErrors += operationErrors;
+			if (histogram.getTotalCount() > 0) {
+				operations.put(operation.key(), summarize(histogram, operationErrors, seconds));
+			}
+		}
+		Map<String, Object> summary = new LinkedHashMap<>();
+		summary.put("durationSeconds", seconds);
+		summary.put("total", summarize(total, totalErrors, seconds));
+		summary.put("operations", operations);
+		Map<String, Long> failureCounts = new TreeMap<>();
+		failures.forEach((reason, count) -> failureCounts.put(reason, count.sum()));
+		summary.put("failures", failureCounts);
+		return summary;
+	}
+
+	private static Map<String, Object> summarize(Histogram histogram, long errors, double seconds) {
+		Map<String, Object> summary = new LinkedHashMap<>();
+		summary.put("requests", histogram.getTotalCount());
+		summary.put("errors", errors);
+		summary.put("throughput", histogram.getTotalCount() / seconds);
+		summary.put("p50", millis(histogram.getValueAtPercentile(50)));
+		summary.put("p95", millis(histogram.getValueAtPercentile(95)));
+		summary.put("p99", millis(histogram.getValueAtPercentile(99)));
+		summary.put("max", millis(histogram.getMaxValue()));
+		return summary;
+	}
+
+	private static double millis(long nanos) {
+		return nanos / NANOS_PER_MILLI;
+	}
+
+}
@@ -0,0 +1,329 @@
+package com.wander.swplanet.loadtest;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.Environment;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.r2dbc.connection.init.ResourceDatabasePopulator;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wander.swplanet.SwplanetApplication;
+import com.wander.swplanet.domain.Planet;
+
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import lombok.extern.slf4j.Slf4j;
+import reactor.blockhound.BlockHound;
+import reactor.blockhound.BlockingOperationError;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+/**
+ * Boots {@link SwplanetApplication} against an in-memory H2 database in MySQL mode, created
+ * from {@code sql_ini.sql}, and drives a weighted mix of requests on /planets over HTTP.
+ * Settings are read from {@code application-loadtest.yml} and can be overridden with
+ * {@code --loadtest.*} arguments.
+ */
+@Slf4j
+public class LoadTest {
+
+	private static final int SEED_CHUNK_SIZE = 500;
+	private static final Pattern AUTO_INCREMENT_AFTER_CONSTRAINTS =
+			Pattern.compile("UNIQUE\\s+NOT\\s+NULL\\s+AUTO_INCREMENT", Pattern.CASE_INSENSITIVE);
+
+	private final Environment environment;
+	private final WebClient webClient;
+	private final int concurrency;
+	private final int pageSize;
+	private final Operation[] weightedOperations;
+	private final LatencyReport report = new LatencyReport();
+	private final Queue<Integer> createdIds = new ConcurrentLinkedQueue<>();
+	private final AtomicLong sequence = new AtomicLong();
+	private List<Integer> seedIds;
+
+	LoadTest(Environment environment, int port) {
+		this.environment = environment;
+		this.concurrency = environment.getProperty("loadtest.concurrency", Integer.class, 64);
+		this.pageSize = environment.getProperty("loadtest.page-size", Integer.class, 100);
+		this.weightedOperations = weightedOperations(Binder.get(environment)
+				.bind("loadtest.mix", Bindable.mapOf(String.class, Integer.class))
+				.orElse(Map.of(Operation.GET.key(), 1)));
+		ConnectionProvider connectionProvider = ConnectionProvider.builder("loadtest")
+				.maxConnections(concurrency)
+				.pendingAcquireMaxCount(-1)
+				.build();
+		this.webClient = WebClient.builder()
+				.baseUrl("http://localhost:" + port)
+				.clientConnector(new ReactorClientHttpConnector(HttpClient.create(connectionProvider)
+						.compress(environment.getProperty("loadtest.compress", Boolean.class, false))))
+				.codecs(codecs -> codecs.defaultCodecs().maxInMemorySize(16 * 1024 * 1024))
+				.build();
+	}
+
+	public static void main(String[] args) throws Exception {
+		System.setProperty("spring.devtools.restart.enabled", "false");
+		installBlockHound();
+		ConfigurableApplicationContext context = new SpringApplicationBuilder(SwplanetApplication.class)
+				.profiles("loadtest")
+				.initializers(applicationContext -> createSchema(applicationContext.getEnvironment()))
+				.run(args);
+		try {
+			int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+			LoadTest loadTest = new LoadTest(context.getEnvironment(), port);
+			Map<String, Object> summary = loadTest.run();
+			Path result = Paths.get(context.getEnvironment().getProperty("loadtest.result", "target/loadtest-result.json"));
+			Files.createDirectories(result.toAbsolutePath().getParent());
+			context.getBean(ObjectMapper.class).writerWithDefaultPrettyPrinter().writeValue(result.toFile(), summary);
+			log.info("Results written to {}", result.toAbsolutePath());
+		} finally {
+			context.close();
+		}
+	}
+
+	/**
+	 * The application installs BlockHound in a static initializer, only the first install
+	 * takes effect. H2 is an embedded, blocking engine, so calls made from within it are
+	 * tolerated while any other blocking call on a non-blocking thread still fails.
+	 */
+	private static void installBlockHound() {
+		BlockHound.install(builder -> builder
+				.allowBlockingCallsInside("javax.net.ssl.SSLContext", "init")
+				.blockingMethodCallback(method -> {
+					boolean insideH2 = Arrays.stream(new Throwable().getStackTrace())
+							.anyMatch(frame -> frame.getClassName().startsWith("org.h2."));
+					if (!insideH2) {
+						throw new BlockingOperationError(method);
+					}
+				}));
+	}
+
+	/**
+	 * Runs the MySQL schema script against H2. H2 only accepts AUTO_INCREMENT before the
+	 * column constraints, so that column definition is reordered, everything else is kept.
+	 */
+	private static void createSchema(Environment environment) {
+		String schema = environment.getRequiredProperty("loadtest.schema");
+		String script;
+		try {
+			script = StreamUtils.copyToString(new DefaultResourceLoader().getResource(schema).getInputStream(), StandardCharsets.UTF_8);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Unable to read " + schema, e);
+		}
+		script = AUTO_INCREMENT_AFTER_CONSTRAINTS.matcher(script).replaceAll("NOT NULL AUTO_INCREMENT UNIQUE");
+		new ResourceDatabasePopulator(new ByteArrayResource(script.getBytes(StandardCharsets.UTF_8), schema))
+				.populate(ConnectionFactories.get(ConnectionFactoryOptions.parse(environment.getRequiredProperty("loadtest.schema-url"))
+						.mutate()
+						.option(ConnectionFactoryOptions.USER, environment.getProperty("spring.r2dbc.username", ""))
+						.option(ConnectionFactoryOptions.PASSWORD, environment.getProperty("spring.r2dbc.password", ""))
+						.build()))
+				.block();
+		log.info("Created embedded database from {}", schema);
+	}
+
+	Map<String, Object> run() {
+		String authorization = authorization();
+		seed(authorization, environment.getProperty("loadtest.planets", Integer.class, 1000));
+
+		Duration warmup = environment.getProperty("loadtest.warmup", Duration.class, Duration.ofSeconds(10));
+		Duration duration = environment.getProperty("loadtest.duration", Duration.class, Duration.ofSeconds(30));
+		log.info("Warming up for {} with {} concurrent requests", warmup, concurrency);
+		drive(authorization, warmup);
+		report.reset();
+
+		log.info("Measuring for {} with {} concurrent requests", duration, concurrency);
+		long start = System.nanoTime();
+		drive(authorization, duration);
+		Map<String, Object> summary = report.summarize(Duration.ofNanos(System.nanoTime() - start));
+		print(summary);
+		return summary;
+	}
+
+	private String authorization() {
+		String basic = "Basic " + Base64.getEncoder().encodeToString(
+				(environment.getRequiredProperty("loadtest.username") + ":" + environment.getRequiredProperty("loadtest.password"))
+						.getBytes(StandardCharsets.UTF_8));
+		if (!"token".equals(environment.getProperty("loadtest.authentication", "token"))) {
+			return basic;
+		}
+		return "Bearer " + webClient.post()
+				.uri("/auth/token")
+				.header(HttpHeaders.AUTHORIZATION, basic)
+				.retrieve()
+				.bodyToMono(JsonNode.class)
+				.map(token -> token.get("token").asText())
+				.block();
+	}
+
+	private void seed(String authorization, int planets) {
+		seedIds = Flux.range(0, planets)
+				.map(i -> planet())
+				.buffer(SEED_CHUNK_SIZE)
+				.concatMap(chunk -> webClient.post()
+						.uri("/planets/batch")
+						.header(HttpHeaders.AUTHORIZATION, authorization)
+						.bodyValue(chunk)
+						.retrieve()
+						.bodyToFlux(Planet.class))
+				.map(Planet::getId)
+				.collectList()
+				.block();
+		log.info("Seeded {} planets", seedIds.size());
+	}
+
+	private void drive(String authorization, Duration duration) {
+		long deadline = System.nanoTime() + duration.toNanos();
+		Flux.range(0, concurrency)
+				.flatMap(worker -> timed(authorization).repeat(() -> System.nanoTime() < deadline), concurrency)
+				.blockLast();
+	}
+
+	private Mono<Void> timed(String authorization) {
+		return Mono.defer(() -> {
+			long start = System.nanoTime();
+			Operation operation = weightedOperations[ThreadLocalRandom.current().nextInt(weightedOperations.length)];
+			Operation issued = operation == Operation.DELETE && createdIds.isEmpty() ? Operation.CREATE : operation;
+			return execute(issued, authorization)
+					.onErrorResume(e -> {
+						report.recordFailure(issued, e.getClass().getSimpleName() + ": " + e.getMessage());
+						return Mono.just(false);
+					})
+					.doOnNext(successful -> report.record(issued, System.nanoTime() - start, successful))
+					.then();
+		});
+	}
+
+	private Mono<Boolean> execute(Operation operation, String authorization) {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		WebClient.RequestBodySpec request;
+		switch (operation) {
+		case LIST:
+			request = request(operation, authorization, random.nextInt(seedIds.get(seedIds.size() - 1)), pageSize);
+			break;
+		case CREATE:
+			return request(operation, authorization)
+					.bodyValue(planet())
+					.exchangeToMono(response -> response.statusCode().is2xxSuccessful()
+							? response.bodyToMono(Planet.class).doOnNext(created -> createdIds.add(created.getId())).thenReturn(true)
+							: failed(operation, response));
+		case UPDATE:
+			return request(operation, authorization, randomSeedId(random))
+					.bodyValue(planet())
+					.exchangeToMono(response -> successful(operation, response));
+		case DELETE:
+			Integer id = createdIds.poll();
+			if (id == null) {
+				return execute(Operation.CREATE, authorization);
+			}
+			request = request(operation, authorization, id);
+			break;
+		default:
+			request = request(operation, authorization, randomSeedId(random));
+		}
+		return request.exchangeToMono(response -> successful(operation, response));
+	}
+
+	private WebClient.RequestBodySpec request(Operation operation, String authorization, Object... uriVariables) {
+		return webClient.method(operation.getMethod())
+				.uri(operation.getUriTemplate(), uriVariables)
+				.header(HttpHeaders.AUTHORIZATION, authorization);
+	}
+
+	private Mono<Boolean> successful(Operation operation, ClientResponse response) {
+		return response.statusCode().is2xxSuccessful()
+				? response.releaseBody().thenReturn(true)
+				: failed(operation, response);
+	}
+
+	/**
+	 * Records the status and error message of a failed request, so that failures are reported
+	 * by reason rather than only counted.
+	 */
+	private Mono<Boolean> failed(Operation operation, ClientResponse response) {
+		return response.bodyToMono(JsonNode.class)
+				.map(body -> body.path("message").asText(""))
+				.onErrorReturn("")
+				.defaultIfEmpty("")
+				.doOnNext(message -> report.recordFailure(operation, response.rawStatusCode() + " " + message))
+				.thenReturn(false);
+	}
+
+	private int randomSeedId(ThreadLocalRandom random) {
+		return seedIds.get(random.nextInt(seedIds.size()));
+	}
+
+	private Planet planet() {
+		long n = sequence.incrementAndGet();
+		return Planet.builder()
+				.name("Planet " + n)
+				.climate(n % 2 == 0 ? "arid" : "temperate")
+				.terrain(n % 3 == 0 ? "desert" : "mountains")
+				.filmAppearences(n % 6)
+				.build();
+	}
+
+	private void print(Map<String, Object> summary) {
+		StringBuilder table = new StringBuilder(String.format("%n%-8s %10s %8s %10s %9s %9s %9s %9s%n",
+				"", "requests", "errors", "req/s", "p50 ms", "p95 ms", "p99 ms", "max ms"));
+		@SuppressWarnings("unchecked")
+		Map<String, Map<String, Object>> operations = (Map<String, Map<String, Object>>) summary.get("operations");
+		operations.forEach((name, row) -> table.append(row(name, row)));
+		@SuppressWarnings("unchecked")
+		Map<String, Object> total = (Map<String, Object>) summary.get("total");
+		table.append(row("total", total));
+		@SuppressWarnings("unchecked")
+		Map<String, Long> failures = (Map<String, Long>) summary.get("failures");
+		if (!failures.isEmpty()) {
+			table.append(String.format("%nFailures:%n"));
+			failures.forEach((reason, count) -> table.append(String.format("%8d  %s%n", count, reason)));
+		}
+		log.info("Load test finished in {}s{}", String.format("%.1f", summary.get("durationSeconds")), table);
+	}
+
+	private static String row(String name, Map<String, Object> row) {
+		return String.format("%-8s %10d %8d %10.1f %9.2f %9.2f %9.2f %9.2f%n", name, row.get("requests"), row.get("errors"),
+				row.get("throughput"), row.get("p50"), row.get("p95"), row.get("p99"), row.get("max"));
+	}
+
+	private static Operation[] weightedOperations(Map<String, Integer> mix) {
+		Operation[] operations = Arrays.stream(Operation.values())
+				.flatMap(operation -> IntStream.range(0, mix.getOrDefault(operation.key(), 0)).mapToObj(i -> operation))
+				.toArray(Operation[]::new);
+		if (operations.length == 0) {
+			throw new IllegalArgumentException("loadtest.mix must give a positive weight to at least one of "
+					+ Arrays.stream(Operation.values()).map(Operation::key).collect(Collectors.joining(", ")));
+		}
+		return operations;
+	}
+
+}
@@ -0,0 +1,36 @@
+package com.wander.swplanet.loadtest;
+
+import org.springframework.http.HttpMethod;
+
+/**
+ * Request kinds issued by the load test, keyed in {@code loadtest.mix} by their lower case name.
+ */
+enum Operation {
+
+	GET(HttpMethod.GET, "/planets/{id}"),
+	LIST(HttpMethod.GET, "/planets?after={after}&limit={limit}"),
+	CREATE(HttpMethod.POST, "/planets"),
+	UPDATE(HttpMethod.PUT, "/planets/{id}"),
+	DELETE(HttpMethod.DELETE, "/planets/{id}");
+
+	private final HttpMethod method;
+	private final String uriTemplate;
+
+	Operation(HttpMethod method, String uriTemplate) {
+		this.method = method;
+		this.uriTemplate = uriTemplate;
+	}
+
+	HttpMethod getMethod() {
+		return method;
+	}
+
+	String getUriTemplate() {
+		return uriTemplate;
+	}
+
+	String key() {
+		return name().toLowerCase();
+	}
+
+}
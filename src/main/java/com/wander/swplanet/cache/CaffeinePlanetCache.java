@@ -0,0 +1,88 @@
+package com.wander.swplanet.cache;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.wander.swplanet.domain.Planet;
+
+import reactor.core.publisher.Mono;
+
+@Component
+public class CaffeinePlanetCache implements PlanetCache {
+
+	private final AsyncCache<Integer, Planet> cache;
+
+	public CaffeinePlanetCache(
+			@Value("${planets.cache.maximum-size:10000}") long maximumSize,
+			@Value("${planets.cache.time-to-live:10m}") Duration timeToLive) {
+		this.cache = Caffeine.newBuilder()
+				.maximumSize(maximumSize)
+				.expireAfterWrite(timeToLive)
+				.recordStats()
+				.buildAsync();
+	}
+
+	/**
+	 * The loader is subscribed only after the pending entry is in place, outside of the map's
+	 * compute call: a loader that completes synchronously may otherwise run other writes to
+	 * the cache, such as a put from a concurrent update, while the bin is still locked.
+	 * Empty and failed loads are removed before waiting callers are released, so a retry
+	 * never observes the stale entry.
+	 */
+	@Override
+	public Mono<Planet> get(Integer id, Function<Integer, Mono<Planet>> loader) {
+		return Mono.defer(() -> {
+			CompletableFuture<Planet> loading = new CompletableFuture<>();
+			CompletableFuture<Planet> cached = cache.get(id, (key, executor) -> loading);
+			if (cached == loading) {
+				loader.apply(id).subscribe(loading::complete, e -> {
+					cache.asMap().remove(id, loading);
+					loading.completeExceptionally(e);
+				}, () -> {
+					if (!loading.isDone()) {
+						cache.asMap().remove(id, loading);
+						loading.complete(null);
+					}
+				});
+			}
+			return Mono.fromFuture(cached);
+		});
+	}
+
+	@Override
+	public void put(Planet planet) {
+		if (planet.getId() != null) {
+			cache.put(planet.getId(), CompletableFuture.completedFuture(planet));
+		}
+	}
+
+	@Override
+	public void evict(Integer id) {
+		cache.synchronous().invalidate(id);
+	}
+
+	@Override
+	public void clear() {
+		cache.synchronous().invalidateAll();
+	}
+	
+	public CacheStats stats() {
+		return cache.synchronous().stats();
+	}
+	
+	public long estimatedSize() {
+		return cache.synchronous().estimatedSize();
+	}
+	
+	public AsyncCache<Integer, Planet> getCache() {
+		return cache;
+	}
+
+}
@@ -0,0 +1,19 @@
+package com.wander.swplanet.cache;
+
+import java.util.function.Function;
+
+import com.wander.swplanet.domain.Planet;
+
+import reactor.core.publisher.Mono;
+
+public interface PlanetCache {
+	
+	Mono<Planet> get(Integer id, Function<Integer, Mono<Planet>> loader);
+	
+	void put(Planet planet);
+	
+	void evict(Integer id);
+	
+	void clear();
+	
+}
@@ -0,0 +1,124 @@
+package com.wander.swplanet.cache;
+
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.wander.swplanet.domain.Planet;
+import com.wander.swplanet.domain.PlanetPage;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * JSON bodies of planets and listing pages, encoded once and written as they are on later
+ * requests. A planet body is reused only while the planet it was encoded from is equal to
+ * the one being served, and pages are keyed by their listing tag, which is derived from the
+ * rows of the page in the database, so an entry missed by an invalidation is never served
+ * stale. Entries expire after the configured time to live, and pages larger than the
+ * configured size are not kept.
+ */
+@Component
+public class PlanetJsonCache {
+
+	private final ObjectMapper objectMapper;
+	private final Cache<Integer, EncodedPlanet> planets;
+	private final Cache<String, EncodedPage> pages;
+	private final int pageMaximumBytes;
+
+	public PlanetJsonCache(ObjectMapper objectMapper,
+			@Value("${planets.json-cache.maximum-size:10000}") long maximumSize,
+			@Value("${planets.json-cache.page-maximum-size:256}") long pageMaximumSize,
+			@Value("${planets.json-cache.page-maximum-bytes:65536}") int pageMaximumBytes,
+			@Value("${planets.json-cache.time-to-live:10m}") Duration timeToLive) {
+		this.objectMapper = objectMapper;
+		this.planets = Caffeine.newBuilder()
+				.maximumSize(maximumSize)
+				.expireAfterWrite(timeToLive)
+				.recordStats()
+				.build();
+		this.pages = Caffeine.newBuilder()
+				.maximumSize(pageMaximumSize)
+				.expireAfterWrite(timeToLive)
+				.recordStats()
+				.build();
+		this.pageMaximumBytes = pageMaximumBytes;
+	}
+
+	public byte[] planet(Planet planet) {
+		EncodedPlanet cached = planets.getIfPresent(planet.getId());
+		if (cached != null && cached.getPlanet().equals(planet)) {
+			return cached.getJson();
+		}
+		byte[] json = encode(planet);
+		planets.put(planet.getId(), new EncodedPlanet(planet, json));
+		return json;
+	}
+
+	/**
+	 * The encoded page under {@code key}, loaded and encoded on a miss.
+	 */
+	public Mono<EncodedPage> page(String key, Supplier<Mono<PlanetPage>> loader) {
+		return Mono.defer(() -> {
+			EncodedPage cached = pages.getIfPresent(key);
+			if (cached != null) {
+				return Mono.just(cached);
+			}
+			return loader.get()
+					.map(page -> new EncodedPage(encode(page.getPlanets()), page.getNext(), page.getPlanets().size()))
+					.doOnNext(encoded -> {
+						if (encoded.getJson().length <= pageMaximumBytes) {
+							pages.put(key, encoded);
+						}
+					});
+		});
+	}
+
+	public void evict(Integer id) {
+		planets.invalidate(id);
+	}
+
+	public void clearPages() {
+		pages.invalidateAll();
+	}
+
+	public Cache<Integer, EncodedPlanet> getPlanets() {
+		return planets;
+	}
+
+	public Cache<String, EncodedPage> getPages() {
+		return pages;
+	}
+
+	private byte[] encode(Object value) {
+		try {
+			return objectMapper.writeValueAsBytes(value);
+		} catch (JsonProcessingException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@lombok.Value
+	public static class EncodedPlanet {
+		Planet planet;
+		byte[] json;
+	}
+
+	@lombok.Value
+	public static class EncodedPage {
+		byte[] json;
+		Integer next;
+		int size;
+
+		public boolean hasNext() {
+			return next != null;
+		}
+	}
+
+}
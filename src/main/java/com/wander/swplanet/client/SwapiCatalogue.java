@@ -0,0 +1,186 @@
+package com.wander.swplanet.client;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Local mirror of the SWAPI planet catalogue, mapping planet names to their number of
+ * films. It is refreshed when the application starts and then periodically, so that
+ * lookups are answered from memory. While the mirror is missing or older than the maximum
+ * age, and for names beyond the pages mirrored, lookups fall back to {@link SwapiClient}.
+ */
+@Component
+@Slf4j
+public class SwapiCatalogue {
+
+	public static final String METRICS = "swapi.catalogue";
+
+	private final WebClient webClient;
+	private final SwapiClient swapiClient;
+	private final String pageUri;
+	private final int maxPages;
+	private final int concurrency;
+	private final Duration refreshInterval;
+	private final Duration maxAge;
+	private final boolean enabled;
+	private final Clock clock;
+	private volatile Snapshot snapshot = new Snapshot(Map.of(), null, false);
+	private volatile Disposable refreshes;
+
+	@Autowired
+	public SwapiCatalogue(@Lazy WebClient swapiWebClient,
+			SwapiClient swapiClient,
+			@Value("${services.swapi.planets}${services.swapi.page}") String pageUri,
+			@Value("${services.swapi.maxPages:10}") int maxPages,
+			@Value("${services.swapi.catalogue.concurrency:4}") int concurrency,
+			@Value("${services.swapi.catalogue.refresh-interval:1h}") Duration refreshInterval,
+			@Value("${services.swapi.catalogue.max-age:6h}") Duration maxAge,
+			@Value("${services.swapi.enabled:true}") boolean enabled) {
+		this(swapiWebClient, swapiClient, pageUri, maxPages, concurrency, refreshInterval, maxAge, enabled,
+				Clock.systemUTC());
+	}
+
+	SwapiCatalogue(WebClient webClient, SwapiClient swapiClient, String pageUri, int maxPages, int concurrency,
+			Duration refreshInterval, Duration maxAge, boolean enabled, Clock clock) {
+		this.webClient = webClient;
+		this.swapiClient = swapiClient;
+		this.pageUri = pageUri;
+		this.maxPages = maxPages;
+		this.concurrency = concurrency;
+		this.refreshInterval = refreshInterval;
+		this.maxAge = maxAge;
+		this.enabled = enabled;
+		this.clock = clock;
+	}
+
+	public Mono<Long> findFilmAppearences(String planetName) {
+		if (!enabled || !StringUtils.hasText(planetName)) {
+			return Mono.empty();
+		}
+		Snapshot current = snapshot;
+		if (!isFresh(current)) {
+			return swapiClient.findFilmAppearences(planetName);
+		}
+		Long films = current.getFilmAppearences().get(SwapiClient.key(planetName));
+		if (films == null && !current.isComplete()) {
+			return swapiClient.findFilmAppearences(planetName);
+		}
+		return Mono.justOrEmpty(films);
+	}
+
+	/**
+	 * Pages through the SWAPI planets list, at most {@code services.swapi.maxPages} pages,
+	 * and replaces the mirror once every page has been read. A failed refresh keeps the
+	 * previous mirror.
+	 */
+	public Mono<Integer> refresh() {
+		return fetchPage(1)
+				.flatMap(first -> {
+					int pages = pageCount(first);
+					return Flux.range(2, Math.max(0, Math.min(pages, maxPages) - 1))
+							.flatMap(this::fetchPage, concurrency)
+							.startWith(first)
+							.collectList()
+							.map(all -> toSnapshot(all, pages <= maxPages));
+				})
+				.doOnNext(refreshed -> snapshot = refreshed)
+				.map(refreshed -> refreshed.getFilmAppearences().size())
+				.name(METRICS + ".refresh").metrics();
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void start() {
+		if (!enabled) {
+			return;
+		}
+		refreshes = Flux.interval(Duration.ZERO, refreshInterval)
+				.onBackpressureDrop()
+				.concatMap(tick -> refresh()
+						.doOnNext(size -> log.info("SWAPI catalogue refreshed with {} planets", size))
+						.onErrorResume(e -> {
+							log.warn("SWAPI catalogue refresh failed: {}", e.toString());
+							return Mono.empty();
+						}))
+				.subscribe();
+	}
+
+	@PreDestroy
+	public void stop() {
+		if (refreshes != null) {
+			refreshes.dispose();
+		}
+	}
+
+	public int size() {
+		return snapshot.getFilmAppearences().size();
+	}
+
+	/**
+	 * Seconds since the last successful refresh, or {@link Double#NaN} before the first one.
+	 */
+	public double age() {
+		Instant refreshedAt = snapshot.getRefreshedAt();
+		return refreshedAt == null ? Double.NaN : Duration.between(refreshedAt, clock.instant()).toMillis() / 1000d;
+	}
+
+	private boolean isFresh(Snapshot current) {
+		return current.getRefreshedAt() != null
+				&& !current.getRefreshedAt().plus(maxAge).isBefore(clock.instant());
+	}
+
+	private Mono<SwapiPlanetPage> fetchPage(int page) {
+		return webClient.get()
+				.uri(pageUri, page)
+				.retrieve()
+				.bodyToMono(SwapiPlanetPage.class);
+	}
+
+	private int pageCount(SwapiPlanetPage first) {
+		int pageSize = first.getResults() == null ? 0 : first.getResults().size();
+		if (first.getCount() == null || pageSize == 0) {
+			return 1;
+		}
+		return (first.getCount() + pageSize - 1) / pageSize;
+	}
+
+	private Snapshot toSnapshot(List<SwapiPlanetPage> pages, boolean complete) {
+		Map<String, Long> filmAppearences = new HashMap<>();
+		pages.stream()
+				.map(SwapiPlanetPage::getResults)
+				.filter(Objects::nonNull)
+				.flatMap(List::stream)
+				.filter(planet -> StringUtils.hasText(planet.getName()))
+				.forEach(planet -> filmAppearences.put(SwapiClient.key(planet.getName()),
+						planet.getFilms() == null ? 0L : planet.getFilms().size()));
+		return new Snapshot(Map.copyOf(filmAppearences), clock.instant(), complete);
+	}
+
+	@lombok.Value
+	private static class Snapshot {
+		Map<String, Long> filmAppearences;
+		Instant refreshedAt;
+		boolean complete;
+	}
+
+}
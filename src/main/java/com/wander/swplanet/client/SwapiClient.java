@@ -0,0 +1,123 @@
+package com.wander.swplanet.client;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+/**
+ * Looks planets up on SWAPI by name. Lookups are cached, including planets SWAPI does not
+ * know, while failures are not. Calls beyond the concurrency limit, while the circuit is
+ * open, or past the timeout complete empty instead of failing the caller.
+ */
+@Component
+@Slf4j
+public class SwapiClient {
+
+	public static final String NAME = "swapi";
+
+	private final WebClient webClient;
+	private final CircuitBreaker circuitBreaker;
+	private final Bulkhead bulkhead;
+	private final String searchUri;
+	private final boolean enabled;
+	private final AsyncCache<String, Optional<Long>> filmAppearences;
+
+	/**
+	 * The web client is resolved lazily: it is customized with the meter registry, which in
+	 * turn binds this client's cache metrics.
+	 */
+	@Autowired
+	public SwapiClient(@Lazy WebClient swapiWebClient,
+			CircuitBreakerRegistry swapiCircuitBreakerRegistry,
+			BulkheadRegistry swapiBulkheadRegistry,
+			@Value("${services.swapi.planets}${services.swapi.search}") String searchUri,
+			@Value("${services.swapi.enabled:true}") boolean enabled,
+			@Value("${services.swapi.cache.maximum-size:1000}") long maximumSize,
+			@Value("${services.swapi.cache.time-to-live:1h}") Duration timeToLive) {
+		this(swapiWebClient, swapiCircuitBreakerRegistry.circuitBreaker(NAME), swapiBulkheadRegistry.bulkhead(NAME),
+				searchUri, enabled, maximumSize, timeToLive);
+	}
+
+	SwapiClient(WebClient webClient, CircuitBreaker circuitBreaker, Bulkhead bulkhead, String searchUri,
+			boolean enabled, long maximumSize, Duration timeToLive) {
+		this.webClient = webClient;
+		this.circuitBreaker = circuitBreaker;
+		this.bulkhead = bulkhead;
+		this.searchUri = searchUri;
+		this.enabled = enabled;
+		this.filmAppearences = Caffeine.newBuilder()
+				.maximumSize(maximumSize)
+				.expireAfterWrite(timeToLive)
+				.recordStats()
+				.buildAsync();
+	}
+
+	public Mono<Long> findFilmAppearences(String planetName) {
+		if (!enabled || !StringUtils.hasText(planetName)) {
+			return Mono.empty();
+		}
+		String key = key(planetName);
+		return Mono.defer(() -> {
+					CompletableFuture<Optional<Long>> loading = new CompletableFuture<>();
+					CompletableFuture<Optional<Long>> cached = filmAppearences.get(key, (name, executor) -> loading);
+					if (cached == loading) {
+						searchFilmAppearences(planetName.trim())
+								.map(Optional::of)
+								.defaultIfEmpty(Optional.empty())
+								.subscribe(loading::complete, e -> {
+									filmAppearences.asMap().remove(key, loading);
+									loading.completeExceptionally(e);
+								});
+					}
+					return Mono.fromFuture(cached);
+				})
+				.flatMap(Mono::justOrEmpty)
+				.onErrorResume(e -> {
+					log.debug("SWAPI lookup of {} failed: {}", planetName, e.toString());
+					return Mono.empty();
+				});
+	}
+
+	public AsyncCache<String, Optional<Long>> getCache() {
+		return filmAppearences;
+	}
+
+	static String key(String planetName) {
+		return planetName.trim().toLowerCase(Locale.ROOT);
+	}
+
+	private Mono<Long> searchFilmAppearences(String planetName) {
+		return webClient.get()
+				.uri(searchUri, planetName)
+				.retrieve()
+				.bodyToMono(SwapiPlanetPage.class)
+				.transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+				.transformDeferred(BulkheadOperator.of(bulkhead))
+				.flatMapIterable(page -> page.getResults() == null ? List.of() : page.getResults())
+				.filter(planet -> planetName.equalsIgnoreCase(planet.getName()))
+				.next()
+				.map(planet -> planet.getFilms() == null ? 0L : planet.getFilms().size());
+	}
+
+}
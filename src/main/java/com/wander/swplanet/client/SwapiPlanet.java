@@ -0,0 +1,22 @@
+package com.wander.swplanet.client;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class SwapiPlanet {
+
+	private String name;
+	private String climate;
+	private String terrain;
+	private List<String> films;
+
+}
@@ -0,0 +1,21 @@
+package com.wander.swplanet.client;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class SwapiPlanetPage {
+
+	private Integer count;
+	private String next;
+	private List<SwapiPlanet> results;
+
+}
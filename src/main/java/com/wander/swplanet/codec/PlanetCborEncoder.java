@@ -0,0 +1,44 @@
+package com.wander.swplanet.codec;
+
+import java.util.List;
+import java.util.Map;
+
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.http.codec.cbor.Jackson2CborEncoder;
+import org.springframework.util.MimeType;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * CBOR encoder for planet bodies. {@link Jackson2CborEncoder} only encodes single values,
+ * while the HTTP message writer always hands it a publisher; a {@link Mono} is encoded as
+ * its value and a {@link Flux} is collected and encoded as an array. Other types are left
+ * to the default codecs, so that CBOR is never picked ahead of JSON for them.
+ */
+public class PlanetCborEncoder extends Jackson2CborEncoder {
+
+	@Override
+	public boolean canEncode(ResolvableType elementType, MimeType mimeType) {
+		return super.canEncode(elementType, mimeType) && PlanetMediaTypes.isPlanetType(elementType);
+	}
+
+	@Override
+	public Flux<DataBuffer> encode(Publisher<?> inputStream, DataBufferFactory bufferFactory,
+			ResolvableType elementType, MimeType mimeType, Map<String, Object> hints) {
+		if (inputStream instanceof Mono) {
+			return Mono.from(inputStream)
+					.map(value -> encodeValue(value, bufferFactory, elementType, mimeType, hints))
+					.flux();
+		}
+		ResolvableType listType = ResolvableType.forClassWithGenerics(List.class, elementType);
+		return Flux.from(inputStream)
+				.collectList()
+				.map(list -> encodeValue(list, bufferFactory, listType, mimeType, hints))
+				.flux();
+	}
+
+}
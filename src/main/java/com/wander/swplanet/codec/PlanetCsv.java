@@ -0,0 +1,94 @@
+package com.wander.swplanet.codec;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * CSV lines of planets, as in RFC 4180: fields are separated by commas and may be quoted,
+ * with quotes inside a quoted field doubled. A record is one line, so quoted fields cannot
+ * hold line breaks.
+ */
+public final class PlanetCsv {
+
+	public static final String NAME = "name";
+	public static final String CLIMATE = "climate";
+	public static final String TERRAIN = "terrain";
+	public static final String FILM_APPEARENCES = "film_appearences";
+	public static final String ID = "id";
+	public static final String VERSION = "version";
+
+	private PlanetCsv() {
+	}
+
+	public static List<String> parseLine(String line) {
+		List<String> fields = new ArrayList<>();
+		StringBuilder field = new StringBuilder();
+		boolean quoted = false;
+		for (int i = 0; i < line.length(); i++) {
+			char c = line.charAt(i);
+			if (quoted) {
+				if (c != '"') {
+					field.append(c);
+				} else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+					field.append('"');
+					i++;
+				} else {
+					quoted = false;
+				}
+			} else if (c == '"') {
+				quoted = true;
+			} else if (c == ',') {
+				fields.add(field.toString());
+				field.setLength(0);
+			} else {
+				field.append(c);
+			}
+		}
+		if (quoted) {
+			throw new IllegalArgumentException("Unterminated quoted field");
+		}
+		fields.add(field.toString());
+		return fields;
+	}
+
+	/**
+	 * A line of {@code fields}, ending with a line break. Null fields are left empty; fields
+	 * holding commas, quotes or line breaks are quoted.
+	 */
+	public static String formatLine(Object... fields) {
+		StringBuilder line = new StringBuilder();
+		for (int i = 0; i < fields.length; i++) {
+			if (i > 0) {
+				line.append(',');
+			}
+			if (fields[i] != null) {
+				appendField(line, fields[i].toString());
+			}
+		}
+		return line.append('\n').toString();
+	}
+
+	/**
+	 * The column name a header field stands for: trimmed, lower case, with camel case
+	 * {@code filmAppearences} read as {@code film_appearences}, and without the byte order mark
+	 * that may start a file.
+	 */
+	public static String column(String header) {
+		String column = header.trim().replaceAll("([a-z])([A-Z])", "$1_$2").toLowerCase();
+		return column.startsWith("\uFEFF") ? column.substring(1) : column;
+	}
+
+	private static void appendField(StringBuilder line, String field) {
+		boolean quoted = false;
+		for (int i = 0; i < field.length() && !quoted; i++) {
+			char c = field.charAt(i);
+			quoted = c == ',' || c == '"' || c == '\n' || c == '\r';
+		}
+		if (!quoted) {
+			line.append(field);
+			return;
+		}
+		line.append('"').append(field.replace("\"", "\"\"")).append('"');
+	}
+
+}
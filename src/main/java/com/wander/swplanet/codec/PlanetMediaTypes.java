@@ -0,0 +1,73 @@
+package com.wander.swplanet.codec;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.core.ResolvableType;
+import org.springframework.http.MediaType;
+
+import com.wander.swplanet.domain.Planet;
+
+/**
+ * Media types of the planet encodings besides JSON.
+ */
+public final class PlanetMediaTypes {
+
+	public static final String APPLICATION_CBOR_VALUE = MediaType.APPLICATION_CBOR_VALUE;
+	public static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+	public static final String APPLICATION_PROTOBUF_VALUE = "application/x-protobuf";
+	public static final String TEXT_CSV_VALUE = "text/csv";
+
+	public static final MediaType APPLICATION_SMILE = MediaType.valueOf(APPLICATION_SMILE_VALUE);
+	public static final MediaType APPLICATION_PROTOBUF = MediaType.valueOf(APPLICATION_PROTOBUF_VALUE);
+	public static final MediaType TEXT_CSV = MediaType.valueOf(TEXT_CSV_VALUE);
+
+	private static final List<MediaType> BINARY = List.of(MediaType.APPLICATION_CBOR, APPLICATION_SMILE,
+			APPLICATION_PROTOBUF);
+
+	private PlanetMediaTypes() {
+	}
+
+	/**
+	 * The planet encoding the {@code Accept} header prefers, JSON when it names none of the
+	 * binary ones.
+	 */
+	public static MediaType preferred(List<MediaType> accept) {
+		List<MediaType> sorted = new ArrayList<>(accept);
+		MediaType.sortBySpecificityAndQuality(sorted);
+		for (MediaType type : sorted) {
+			if (type.getQualityValue() == 0) {
+				continue;
+			}
+			if (type.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+				return MediaType.APPLICATION_JSON;
+			}
+			for (MediaType binary : BINARY) {
+				if (type.isCompatibleWith(binary)) {
+					return binary;
+				}
+			}
+		}
+		return MediaType.APPLICATION_JSON;
+	}
+
+	/**
+	 * Whether the type is a planet or a collection of planets, the bodies written in the binary
+	 * encodings. Collections whose element
+	 * type is not known, such as a response body declared as {@code Object}, are accepted
+	 * and their elements checked when they are written.
+	 */
+	public static boolean isPlanetType(ResolvableType type) {
+		Class<?> clazz = type.toClass();
+		if (Planet.class.isAssignableFrom(clazz)) {
+			return true;
+		}
+		if (!Collection.class.isAssignableFrom(clazz)) {
+			return false;
+		}
+		Class<?> element = type.asCollection().getGeneric(0).toClass();
+		return element == Object.class || Planet.class.isAssignableFrom(element);
+	}
+
+}
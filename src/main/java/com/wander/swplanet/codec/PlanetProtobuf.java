@@ -0,0 +1,178 @@
+package com.wander.swplanet.codec;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.WireFormat;
+import com.wander.swplanet.domain.Planet;
+
+/**
+ * Protobuf wire format of planets, as described by {@code proto/planet.proto}. A planet
+ * list is the repeated field of {@code PlanetList}, so its encoding is the concatenation
+ * of its encoded elements and can be written one planet at a time. Null fields are left
+ * out and read back as null.
+ */
+public final class PlanetProtobuf {
+
+	private static final int ID = 1;
+	private static final int NAME = 2;
+	private static final int CLIMATE = 3;
+	private static final int TERRAIN = 4;
+	private static final int FILM_APPEARENCES = 5;
+	private static final int VERSION = 6;
+	private static final int PLANETS = 1;
+
+	private PlanetProtobuf() {
+	}
+
+	public static byte[] encode(Planet planet) {
+		byte[] bytes = new byte[size(planet)];
+		write(bytes, out -> write(planet, out));
+		return bytes;
+	}
+
+	public static byte[] encode(Collection<?> planets) {
+		for (Object planet : planets) {
+			if (!(planet instanceof Planet)) {
+				throw new IllegalArgumentException("Not a planet: " + planet);
+			}
+		}
+		int size = planets.stream().mapToInt(planet -> elementSize((Planet) planet)).sum();
+		byte[] bytes = new byte[size];
+		write(bytes, out -> {
+			for (Object planet : planets) {
+				writeElement((Planet) planet, out);
+			}
+		});
+		return bytes;
+	}
+
+	/**
+	 * A planet as one element of a {@code PlanetList}.
+	 */
+	public static byte[] encodeElement(Planet planet) {
+		byte[] bytes = new byte[elementSize(planet)];
+		write(bytes, out -> writeElement(planet, out));
+		return bytes;
+	}
+
+	public static Planet decodePlanet(ByteBuffer buffer) {
+		try {
+			return read(CodedInputStream.newInstance(buffer));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	public static List<Planet> decodeList(ByteBuffer buffer) {
+		try {
+			CodedInputStream in = CodedInputStream.newInstance(buffer);
+			List<Planet> planets = new ArrayList<>();
+			for (int tag = in.readTag(); tag != 0; tag = in.readTag()) {
+				if (WireFormat.getTagFieldNumber(tag) != PLANETS) {
+					in.skipField(tag);
+					continue;
+				}
+				int limit = in.pushLimit(in.readRawVarint32());
+				planets.add(read(in));
+				in.popLimit(limit);
+			}
+			return planets;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static int size(Planet planet) {
+		int size = 0;
+		if (planet.getId() != null) {
+			size += CodedOutputStream.computeInt32Size(ID, planet.getId());
+		}
+		if (planet.getName() != null) {
+			size += CodedOutputStream.computeStringSize(NAME, planet.getName());
+		}
+		if (planet.getClimate() != null) {
+			size += CodedOutputStream.computeStringSize(CLIMATE, planet.getClimate());
+		}
+		if (planet.getTerrain() != null) {
+			size += CodedOutputStream.computeStringSize(TERRAIN, planet.getTerrain());
+		}
+		if (planet.getFilmAppearences() != null) {
+			size += CodedOutputStream.computeInt64Size(FILM_APPEARENCES, planet.getFilmAppearences());
+		}
+		if (planet.getVersion() != null) {
+			size += CodedOutputStream.computeInt64Size(VERSION, planet.getVersion());
+		}
+		return size;
+	}
+
+	private static int elementSize(Planet planet) {
+		int size = size(planet);
+		return CodedOutputStream.computeTagSize(PLANETS) + CodedOutputStream.computeUInt32SizeNoTag(size) + size;
+	}
+
+	private static void write(Planet planet, CodedOutputStream out) throws IOException {
+		if (planet.getId() != null) {
+			out.writeInt32(ID, planet.getId());
+		}
+		if (planet.getName() != null) {
+			out.writeString(NAME, planet.getName());
+		}
+		if (planet.getClimate() != null) {
+			out.writeString(CLIMATE, planet.getClimate());
+		}
+		if (planet.getTerrain() != null) {
+			out.writeString(TERRAIN, planet.getTerrain());
+		}
+		if (planet.getFilmAppearences() != null) {
+			out.writeInt64(FILM_APPEARENCES, planet.getFilmAppearences());
+		}
+		if (planet.getVersion() != null) {
+			out.writeInt64(VERSION, planet.getVersion());
+		}
+	}
+
+	private static void writeElement(Planet planet, CodedOutputStream out) throws IOException {
+		out.writeTag(PLANETS, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+		out.writeUInt32NoTag(size(planet));
+		write(planet, out);
+	}
+
+	private static void write(byte[] bytes, Writer writer) {
+		try {
+			CodedOutputStream out = CodedOutputStream.newInstance(bytes);
+			writer.write(out);
+			out.checkNoSpaceLeft();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static Planet read(CodedInputStream in) throws IOException {
+		Planet planet = new Planet();
+		for (int tag = in.readTag(); tag != 0; tag = in.readTag()) {
+			switch (WireFormat.getTagFieldNumber(tag)) {
+			case ID: planet.setId(in.readInt32()); break;
+			case NAME: planet.setName(in.readString()); break;
+			case CLIMATE: planet.setClimate(in.readString()); break;
+			case TERRAIN: planet.setTerrain(in.readString()); break;
+			case FILM_APPEARENCES: planet.setFilmAppearences(in.readInt64()); break;
+			case VERSION: planet.setVersion(in.readInt64()); break;
+			default: in.skipField(tag);
+			}
+		}
+		return planet;
+	}
+
+	@FunctionalInterface
+	private interface Writer {
+		void write(CodedOutputStream out) throws IOException;
+	}
+
+}
@@ -0,0 +1,61 @@
+package com.wander.swplanet.codec;
+
+import java.util.Map;
+
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.AbstractDataBufferDecoder;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.util.MimeType;
+
+import com.wander.swplanet.domain.Planet;
+
+import reactor.core.publisher.Flux;
+
+/**
+ * Reads a {@code Planet} message, or a {@code PlanetList} when a collection or a
+ * {@link Flux} of planets is expected. The whole body is aggregated first, up to the
+ * configured maximum in-memory size.
+ */
+public class PlanetProtobufDecoder extends AbstractDataBufferDecoder<Object> {
+
+	public PlanetProtobufDecoder() {
+		super(PlanetMediaTypes.APPLICATION_PROTOBUF);
+	}
+
+	@Override
+	public boolean canDecode(ResolvableType elementType, MimeType mimeType) {
+		return super.canDecode(elementType, mimeType) && PlanetMediaTypes.isPlanetType(elementType);
+	}
+
+	@Override
+	public Flux<Object> decode(Publisher<DataBuffer> input, ResolvableType elementType, MimeType mimeType,
+			Map<String, Object> hints) {
+		return DataBufferUtils.join(input, getMaxInMemorySize())
+				.flatMapIterable(buffer -> {
+					try {
+						return PlanetProtobuf.decodeList(buffer.asByteBuffer());
+					} catch (RuntimeException e) {
+						throw new DecodingException("Could not read planet list", e);
+					} finally {
+						DataBufferUtils.release(buffer);
+					}
+				});
+	}
+
+	@Override
+	public Object decode(DataBuffer buffer, ResolvableType targetType, MimeType mimeType, Map<String, Object> hints) {
+		try {
+			return Planet.class.isAssignableFrom(targetType.toClass())
+					? PlanetProtobuf.decodePlanet(buffer.asByteBuffer())
+					: PlanetProtobuf.decodeList(buffer.asByteBuffer());
+		} catch (RuntimeException e) {
+			throw new DecodingException("Could not read planet", e);
+		} finally {
+			DataBufferUtils.release(buffer);
+		}
+	}
+
+}
@@ -0,0 +1,58 @@
+package com.wander.swplanet.codec;
+
+import java.util.Collection;
+import java.util.Map;
+
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.AbstractEncoder;
+import org.springframework.core.codec.EncodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.util.MimeType;
+
+import com.wander.swplanet.domain.Planet;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Writes a single planet as a {@code Planet} message, and a collection or a {@link Flux} of
+ * planets as a {@code PlanetList}, encoding each planet as it arrives.
+ */
+public class PlanetProtobufEncoder extends AbstractEncoder<Object> {
+
+	public PlanetProtobufEncoder() {
+		super(PlanetMediaTypes.APPLICATION_PROTOBUF);
+	}
+
+	@Override
+	public boolean canEncode(ResolvableType elementType, MimeType mimeType) {
+		return super.canEncode(elementType, mimeType) && PlanetMediaTypes.isPlanetType(elementType);
+	}
+
+	@Override
+	public Flux<DataBuffer> encode(Publisher<?> inputStream, DataBufferFactory bufferFactory,
+			ResolvableType elementType, MimeType mimeType, Map<String, Object> hints) {
+		if (inputStream instanceof Mono) {
+			return Mono.from(inputStream)
+					.map(value -> encodeValue(value, bufferFactory, elementType, mimeType, hints))
+					.flux();
+		}
+		return Flux.from(inputStream)
+				.map(planet -> bufferFactory.wrap(PlanetProtobuf.encodeElement((Planet) planet)));
+	}
+
+	@Override
+	public DataBuffer encodeValue(Object value, DataBufferFactory bufferFactory, ResolvableType valueType,
+			MimeType mimeType, Map<String, Object> hints) {
+		try {
+			return bufferFactory.wrap(value instanceof Planet
+					? PlanetProtobuf.encode((Planet) value)
+					: PlanetProtobuf.encode((Collection<?>) value));
+		} catch (IllegalArgumentException e) {
+			throw new EncodingException("Could not write " + valueType, e);
+		}
+	}
+
+}
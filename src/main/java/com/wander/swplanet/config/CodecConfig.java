@@ -0,0 +1,31 @@
+package com.wander.swplanet.config;
+
+import org.springframework.boot.web.codec.CodecCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.codec.cbor.Jackson2CborDecoder;
+
+import com.wander.swplanet.codec.PlanetCborEncoder;
+import com.wander.swplanet.codec.PlanetProtobufDecoder;
+import com.wander.swplanet.codec.PlanetProtobufEncoder;
+
+/**
+ * Binary encodings of planet bodies besides JSON. Smile codecs are registered by default
+ * once Jackson's Smile format is on the classpath; CBOR and Protobuf are added here.
+ * Their encoders only write planets and come ahead of the JSON encoder, so endpoints
+ * returning planets list JSON first in {@code produces} to keep it the default.
+ */
+@Configuration(proxyBeanMethods = false)
+public class CodecConfig {
+
+	@Bean
+	public CodecCustomizer binaryCodecCustomizer() {
+		return configurer -> {
+			configurer.customCodecs().registerWithDefaultConfig(new PlanetCborEncoder());
+			configurer.customCodecs().registerWithDefaultConfig(new Jackson2CborDecoder());
+			configurer.customCodecs().registerWithDefaultConfig(new PlanetProtobufEncoder());
+			configurer.customCodecs().registerWithDefaultConfig(new PlanetProtobufDecoder());
+		};
+	}
+
+}
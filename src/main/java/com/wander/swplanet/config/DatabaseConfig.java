@@ -0,0 +1,37 @@
+package com.wander.swplanet.config;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.spi.ConnectionFactory;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+@Configuration(proxyBeanMethods = false)
+@Slf4j
+public class DatabaseConfig {
+
+	@Bean
+	public SmartInitializingSingleton connectionPoolWarmup(ConnectionFactory connectionFactory,
+			@Value("${spring.r2dbc.pool.max-create-connection-time:5s}") Duration timeout) {
+		return () -> {
+			if (!(connectionFactory instanceof ConnectionPool)) {
+				return;
+			}
+			((ConnectionPool) connectionFactory).warmup()
+					.timeout(timeout)
+					.doOnNext(warmed -> log.info("Connection pool warmed up with {} connections", warmed))
+					.onErrorResume(e -> {
+						log.warn("Connection pool warmup failed, connections will be created on demand", e);
+						return Mono.empty();
+					})
+					.block();
+		};
+	}
+
+}
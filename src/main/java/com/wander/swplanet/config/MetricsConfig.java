@@ -0,0 +1,103 @@
+package com.wander.swplanet.config;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.wander.swplanet.cache.CaffeinePlanetCache;
+import com.wander.swplanet.cache.PlanetJsonCache;
+import com.wander.swplanet.client.SwapiCatalogue;
+import com.wander.swplanet.client.SwapiClient;
+import com.wander.swplanet.index.PlanetFacetIndex;
+import com.wander.swplanet.security.AuthenticationCache;
+import com.wander.swplanet.service.PlanetInsertBatcher;
+
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedBulkheadMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+@Configuration(proxyBeanMethods = false)
+public class MetricsConfig {
+
+	@Bean
+	public MeterBinder cacheMetrics(AuthenticationCache authenticationCache,
+			ObjectProvider<CaffeinePlanetCache> planetCache, ObjectProvider<PlanetJsonCache> planetJsonCache,
+			ObjectProvider<SwapiClient> swapiClient) {
+		return registry -> {
+			CaffeineCacheMetrics.monitor(registry, authenticationCache.getCache(), "authentication");
+			planetCache.ifAvailable(cache -> CaffeineCacheMetrics.monitor(registry, cache.getCache().synchronous(), "planets"));
+			planetJsonCache.ifAvailable(cache -> {
+				CaffeineCacheMetrics.monitor(registry, cache.getPlanets(), "planets.json");
+				CaffeineCacheMetrics.monitor(registry, cache.getPages(), "planets.json.pages");
+			});
+			swapiClient.ifAvailable(client -> CaffeineCacheMetrics.monitor(registry, client.getCache().synchronous(), SwapiClient.NAME));
+		};
+	}
+
+	@Bean
+	public MeterBinder swapiMetrics(CircuitBreakerRegistry swapiCircuitBreakerRegistry, BulkheadRegistry swapiBulkheadRegistry,
+			ObjectProvider<SwapiCatalogue> swapiCatalogue) {
+		return registry -> {
+			TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(swapiCircuitBreakerRegistry).bindTo(registry);
+			TaggedBulkheadMetrics.ofBulkheadRegistry(swapiBulkheadRegistry).bindTo(registry);
+			swapiCatalogue.ifAvailable(catalogue -> {
+				Gauge.builder(SwapiCatalogue.METRICS + ".size", catalogue, SwapiCatalogue::size)
+						.description("Planets in the local SWAPI catalogue")
+						.register(registry);
+				Gauge.builder(SwapiCatalogue.METRICS + ".age", catalogue, SwapiCatalogue::age)
+						.description("Time since the local SWAPI catalogue was last refreshed")
+						.baseUnit("seconds")
+						.register(registry);
+			});
+		};
+	}
+
+	@Bean
+	public MeterBinder planetInsertBatcherMetrics(ObjectProvider<PlanetInsertBatcher> planetInsertBatcher) {
+		return registry -> planetInsertBatcher.ifAvailable(batcher -> {
+			if (batcher.isEnabled()) {
+				Gauge.builder("planet.insert.batcher.waiting", batcher, PlanetInsertBatcher::waiting)
+						.description("New planets waiting to be inserted with the next batch")
+						.register(registry);
+			}
+		});
+	}
+
+	@Bean
+	public MeterBinder planetIndexMetrics(ObjectProvider<PlanetFacetIndex> planetFacetIndex) {
+		return registry -> planetFacetIndex.ifAvailable(index -> {
+			Gauge.builder("planet.index.size", index, PlanetFacetIndex::size)
+					.description("Planets in the climate and terrain facet index")
+					.register(registry);
+			FunctionCounter.builder("planet.id.filter.lookups", index, PlanetFacetIndex::getRejectedLookups)
+					.description("Lookups by id checked against the planet id filter")
+					.tag("outcome", "rejected")
+					.register(registry);
+			FunctionCounter.builder("planet.id.filter.lookups", index, PlanetFacetIndex::getPassedLookups)
+					.description("Lookups by id checked against the planet id filter")
+					.tag("outcome", "passed")
+					.register(registry);
+			FunctionCounter.builder("planet.id.filter.lookups", index, PlanetFacetIndex::getFalsePositiveLookups)
+					.description("Lookups by id checked against the planet id filter")
+					.tag("outcome", "false_positive")
+					.register(registry);
+			FunctionCounter.builder("planet.id.filter.lookups", index, PlanetFacetIndex::getFalseNegativeLookups)
+					.description("Lookups by id checked against the planet id filter")
+					.tag("outcome", "false_negative")
+					.register(registry);
+			Gauge.builder("planet.id.filter.false.positive.rate", index, PlanetFacetIndex::falsePositiveRate)
+					.description("Share of lookups for missing ids the planet id filter let through")
+					.register(registry);
+			Gauge.builder("planet.id.filter.memory", index, PlanetFacetIndex::idFilterSizeInBytes)
+					.description("Size of the planet id filter")
+					.baseUnit("bytes")
+					.register(registry);
+		});
+	}
+
+}
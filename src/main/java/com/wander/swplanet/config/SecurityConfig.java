@@ -7,18 +7,33 @@ import org.springframework.security.authentication.UserDetailsRepositoryReactive
 import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
 import org.springframework.security.config.web.server.ServerHttpSecurity;
 import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.security.web.server.context.WebSessionServerSecurityContextRepository;
+import org.springframework.security.web.server.util.matcher.ServerWebExchangeMatcher;
+import org.springframework.security.web.server.util.matcher.ServerWebExchangeMatchers;
 
+import com.wander.swplanet.security.AuthenticationCache;
+import com.wander.swplanet.security.CachingReactiveAuthenticationManager;
+import com.wander.swplanet.security.TokenSecurityContextRepository;
+import com.wander.swplanet.security.TokenService;
 import com.wander.swplanet.service.UserService;
 
 @EnableWebFluxSecurity
 public class SecurityConfig {
 
+	private static final ServerWebExchangeMatcher TOKEN_ISSUING =
+			ServerWebExchangeMatchers.pathMatchers(HttpMethod.POST, "/auth/token");
+	
 	@Bean
-	public SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity http) {
+	public SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity http, TokenService tokenService) {
 		return http
 				.csrf().disable()
+				.securityContextRepository(new TokenSecurityContextRepository(
+						tokenService, new WebSessionServerSecurityContextRepository(), TOKEN_ISSUING))
 				.authorizeExchange()
+					.matchers(TOKEN_ISSUING).authenticated()
+					.pathMatchers("/actuator/**").hasRole("ADMIN")
 					.pathMatchers(HttpMethod.POST, "/planets/**").hasRole("ADMIN")
+					.pathMatchers(HttpMethod.GET, "/planets/export").hasRole("ADMIN")
 					.pathMatchers(HttpMethod.GET, "/planets/**").hasRole("USER")
 					.anyExchange().hasRole("ADMIN")
 				.and()
@@ -30,8 +45,10 @@ public class SecurityConfig {
 	}
 	
 	@Bean
-	public ReactiveAuthenticationManager authenticationManager(UserService userService) {
-		return new UserDetailsRepositoryReactiveAuthenticationManager(userService);
+	public ReactiveAuthenticationManager authenticationManager(UserService userService,
+			AuthenticationCache authenticationCache) {
+		return new CachingReactiveAuthenticationManager(
+				new UserDetailsRepositoryReactiveAuthenticationManager(userService), authenticationCache);
 	}
 	
 //	@Bean
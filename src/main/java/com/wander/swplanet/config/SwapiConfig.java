@@ -0,0 +1,56 @@
+package com.wander.swplanet.config;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.netty.channel.ChannelOption;
+import reactor.netty.http.client.HttpClient;
+
+@Configuration(proxyBeanMethods = false)
+public class SwapiConfig {
+
+	@Bean
+	public WebClient swapiWebClient(WebClient.Builder webClientBuilder,
+			@Value("${services.swapi.url}") String url,
+			@Value("${services.swapi.timeout:2s}") Duration timeout) {
+		HttpClient httpClient = HttpClient.create()
+				.option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) timeout.toMillis())
+				.responseTimeout(timeout);
+		return webClientBuilder.clone()
+				.baseUrl(url)
+				.clientConnector(new ReactorClientHttpConnector(httpClient))
+				.build();
+	}
+
+	@Bean
+	public CircuitBreakerRegistry swapiCircuitBreakerRegistry(
+			@Value("${services.swapi.circuit-breaker.failure-rate-threshold:50}") float failureRateThreshold,
+			@Value("${services.swapi.circuit-breaker.sliding-window-size:20}") int slidingWindowSize,
+			@Value("${services.swapi.circuit-breaker.minimum-number-of-calls:10}") int minimumNumberOfCalls,
+			@Value("${services.swapi.circuit-breaker.wait-duration-in-open-state:30s}") Duration waitDurationInOpenState) {
+		return CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+				.failureRateThreshold(failureRateThreshold)
+				.slidingWindowSize(slidingWindowSize)
+				.minimumNumberOfCalls(minimumNumberOfCalls)
+				.waitDurationInOpenState(waitDurationInOpenState)
+				.build());
+	}
+
+	@Bean
+	public BulkheadRegistry swapiBulkheadRegistry(@Value("${services.swapi.max-concurrency:16}") int maxConcurrency) {
+		return BulkheadRegistry.of(BulkheadConfig.custom()
+				.maxConcurrentCalls(maxConcurrency)
+				.maxWaitDuration(Duration.ZERO)
+				.build());
+	}
+
+}
@@ -0,0 +1,29 @@
+package com.wander.swplanet.controller;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.wander.swplanet.security.AccessToken;
+import com.wander.swplanet.security.TokenService;
+
+import lombok.RequiredArgsConstructor;
+import reactor.core.publisher.Mono;
+
+@RestController
+@RequestMapping("auth")
+@RequiredArgsConstructor
+public class AuthController {
+
+	private final TokenService tokenService;
+	
+	@PostMapping("token")
+	@ResponseStatus(HttpStatus.OK)
+	public Mono<AccessToken> token(Authentication authentication) {
+		return Mono.fromSupplier(() -> tokenService.issue(authentication));
+	}
+	
+}
@@ -1,12 +1,17 @@
 package com.wander.swplanet.controller;
 
-import java.time.LocalDateTime;
 import java.util.List;
 
 import javax.validation.Valid;
 import javax.validation.constraints.NotEmpty;
 
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -14,47 +19,156 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.UriComponentsBuilder;
 
+import com.wander.swplanet.cache.PlanetJsonCache;
+import com.wander.swplanet.codec.PlanetMediaTypes;
+import com.wander.swplanet.domain.ImportReport;
 import com.wander.swplanet.domain.Planet;
+import com.wander.swplanet.domain.PlanetFacets;
+import com.wander.swplanet.service.PlanetExporter;
+import com.wander.swplanet.service.PlanetImporter;
 import com.wander.swplanet.service.PlanetService;
+import com.wander.swplanet.util.ETags;
 
 import lombok.RequiredArgsConstructor;
-import lombok.extern.slf4j.Slf4j;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 @RestController
 @RequestMapping("planets")
-@Slf4j
 @RequiredArgsConstructor
 @Validated
 public class PlanetController {
 
 	private final PlanetService planetService;
+	private final PlanetJsonCache planetJsonCache;
+	private final PlanetImporter planetImporter;
+	private final PlanetExporter planetExporter;
 	
-	@GetMapping
-	@ResponseStatus(HttpStatus.OK)
-	public Flux<Planet> listAll() {
-		log.info(LocalDateTime.now().toString());
-		return planetService.findAll();
+	/**
+	 * Pages asked for as JSON are written from their cached encoding while the listing has
+	 * not changed. Each encoding of a page has its own tag.
+	 */
+	@GetMapping(produces = { MediaType.APPLICATION_JSON_VALUE, PlanetMediaTypes.APPLICATION_CBOR_VALUE,
+			PlanetMediaTypes.APPLICATION_SMILE_VALUE, PlanetMediaTypes.APPLICATION_PROTOBUF_VALUE })
+	public Mono<ResponseEntity<Object>> listAll(
+			@RequestParam(defaultValue = "0") int after,
+			@RequestParam(defaultValue = "" + PlanetService.DEFAULT_PAGE_SIZE) int limit,
+			ServerWebExchange exchange) {
+		MediaType mediaType = PlanetMediaTypes.preferred(exchange.getRequest().getHeaders().getAccept());
+		return planetService.listingETag(after, limit).flatMap(listingETag -> {
+			String eTag = ETags.variant(listingETag, mediaType);
+			if (exchange.checkNotModified(eTag)) {
+				return Mono.just(ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+						.eTag(eTag)
+						.varyBy(HttpHeaders.ACCEPT)
+						.build());
+			}
+			if (!MediaType.APPLICATION_JSON.equals(mediaType)) {
+				return planetService.findPage(after, limit)
+						.map(page -> pageResponse(eTag, page.getNext(), page.getPlanets().size())
+								.contentType(mediaType)
+								.body(page.getPlanets()));
+			}
+			return planetJsonCache.page(listingETag, () -> planetService.findPage(after, limit))
+					.map(page -> pageResponse(eTag, page.getNext(), page.getSize())
+							.contentType(MediaType.APPLICATION_JSON)
+							.body(page.getJson()));
+		});
 	}
 	
-	@GetMapping("{id}")
-	@ResponseStatus(HttpStatus.OK)
-	public Mono<Planet> findById(@PathVariable Integer id) {
-		return planetService.findById(id);
+	@GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+	public Flux<Planet> streamAll(@RequestParam(defaultValue = "0") int after) {
+		return planetService.stream(after);
 	}
 	
-	@PostMapping
+	@GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+	public Flux<ServerSentEvent<Planet>> streamEvents(
+			@RequestHeader(name = "Last-Event-ID", required = false) Integer lastEventId,
+			@RequestParam(defaultValue = "0") int after) {
+		return planetService.stream(lastEventId != null ? lastEventId : after)
+				.map(planet -> ServerSentEvent.builder(planet)
+						.id(String.valueOf(planet.getId()))
+						.build());
+	}
+	
+	@GetMapping(path = "/search", produces = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE })
+	public Flux<Planet> search(
+			@RequestParam(required = false) String name,
+			@RequestParam(required = false) String climate,
+			@RequestParam(required = false) String terrain,
+			@RequestParam(defaultValue = "0") int after,
+			@RequestParam(defaultValue = "" + PlanetService.DEFAULT_PAGE_SIZE) int limit) {
+		return planetService.search(name, climate, terrain, after, limit);
+	}
+	
+	/**
+	 * Planets by climate and terrain tokens, with the token counts among the matches. Tokens
+	 * of the same facet must all match, or any of them with {@code match=any}.
+	 */
+	@GetMapping("/facets")
+	public Mono<PlanetFacets> findFacets(
+			@RequestParam(required = false) List<String> climate,
+			@RequestParam(required = false) List<String> terrain,
+			@RequestParam(defaultValue = "all") String match,
+			@RequestParam(defaultValue = "0") int after,
+			@RequestParam(defaultValue = "" + PlanetService.DEFAULT_PAGE_SIZE) int limit) {
+		return planetService.findFacets(climate, terrain, !"any".equalsIgnoreCase(match), after, limit);
+	}
+	
+	/**
+	 * The whole table, streamed as it is read. Compressed when asked for with
+	 * {@code Accept-Encoding}.
+	 */
+	@GetMapping(path = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+	public ResponseEntity<Flux<DataBuffer>> exportNdjson(ServerWebExchange exchange) {
+		return ResponseEntity.ok()
+				.header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=planets.ndjson")
+				.body(planetExporter.exportNdjson(exchange.getResponse().bufferFactory()));
+	}
+	
+	@GetMapping(path = "/export", produces = PlanetMediaTypes.TEXT_CSV_VALUE)
+	public ResponseEntity<Flux<DataBuffer>> exportCsv(ServerWebExchange exchange) {
+		return ResponseEntity.ok()
+				.header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=planets.csv")
+				.body(planetExporter.exportCsv(exchange.getResponse().bufferFactory()));
+	}
+	
+	/**
+	 * Answered with 304 and no body when {@code If-None-Match} carries the current tag.
+	 */
+	@GetMapping(path = "{id}", produces = { MediaType.APPLICATION_JSON_VALUE, PlanetMediaTypes.APPLICATION_CBOR_VALUE,
+			PlanetMediaTypes.APPLICATION_SMILE_VALUE, PlanetMediaTypes.APPLICATION_PROTOBUF_VALUE })
+	public Mono<ResponseEntity<Object>> findById(@PathVariable Integer id, ServerWebExchange exchange) {
+		MediaType mediaType = PlanetMediaTypes.preferred(exchange.getRequest().getHeaders().getAccept());
+		return planetService.findById(id)
+				.map(planet -> {
+					ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+							.eTag(ETags.variant(ETags.of(planet), mediaType))
+							.varyBy(HttpHeaders.ACCEPT)
+							.contentType(mediaType);
+					return MediaType.APPLICATION_JSON.equals(mediaType)
+							? response.body(planetJsonCache.planet(planet))
+							: response.body(planet);
+				});
+	}
+	
+	@PostMapping(produces = { MediaType.APPLICATION_JSON_VALUE, PlanetMediaTypes.APPLICATION_CBOR_VALUE,
+			PlanetMediaTypes.APPLICATION_SMILE_VALUE, PlanetMediaTypes.APPLICATION_PROTOBUF_VALUE })
 	@ResponseStatus(HttpStatus.CREATED)
 	public Mono<Planet> save(@Valid @RequestBody Planet planet) {
 		return planetService.save(planet);
 	}
 
-	@PostMapping("/batch")
+	@PostMapping(path = "/batch", produces = { MediaType.APPLICATION_JSON_VALUE, PlanetMediaTypes.APPLICATION_CBOR_VALUE,
+			PlanetMediaTypes.APPLICATION_SMILE_VALUE, PlanetMediaTypes.APPLICATION_PROTOBUF_VALUE })
 	@ResponseStatus(HttpStatus.CREATED)
 	public Flux<Planet> saveBatch(
 			@RequestBody 
@@ -63,10 +177,30 @@ public class PlanetController {
 		return planetService.saveAll(planets);
 	}
 	
+	/**
+	 * Creates planets from an NDJSON or CSV body of any size, read and written a chunk at a
+	 * time. Answers with the final report, or with one report per written chunk when
+	 * NDJSON is asked for.
+	 */
+	@PostMapping(path = "/import", consumes = { MediaType.APPLICATION_NDJSON_VALUE, PlanetMediaTypes.TEXT_CSV_VALUE },
+			produces = MediaType.APPLICATION_JSON_VALUE)
+	public Mono<ImportReport> importPlanets(ServerHttpRequest request) {
+		return planetImporter.importPlanets(request.getBody(), request.getHeaders().getContentType()).last();
+	}
+
+	@PostMapping(path = "/import", consumes = { MediaType.APPLICATION_NDJSON_VALUE, PlanetMediaTypes.TEXT_CSV_VALUE },
+			produces = MediaType.APPLICATION_NDJSON_VALUE)
+	public Flux<ImportReport> importPlanetsWithProgress(ServerHttpRequest request) {
+		return planetImporter.importPlanets(request.getBody(), request.getHeaders().getContentType());
+	}
+	
 	@PutMapping("{id}")
-	@ResponseStatus(HttpStatus.NO_CONTENT)
-	public Mono<Void> update(@PathVariable int id, @Valid @RequestBody Planet planet) {
-		return planetService.update(planet.withId(id));
+	public Mono<ResponseEntity<Void>> update(@PathVariable int id, @Valid @RequestBody Planet planet,
+			@RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+		return planetService.update(planet.withId(id), ifMatch)
+				.map(updated -> updated.getVersion() == null
+						? ResponseEntity.noContent().build()
+						: ResponseEntity.noContent().eTag(ETags.of(updated)).build());
 	}
 	
 	@DeleteMapping("{id}")
@@ -75,4 +209,16 @@ public class PlanetController {
 		return planetService.delete(id);
 	}
 	
+	private ResponseEntity.BodyBuilder pageResponse(String eTag, Integer next, int size) {
+		ResponseEntity.BodyBuilder response = ResponseEntity.ok().eTag(eTag).varyBy(HttpHeaders.ACCEPT);
+		if (next != null) {
+			String link = UriComponentsBuilder.fromPath("/planets")
+					.queryParam("after", next)
+					.queryParam("limit", size)
+					.toUriString();
+			response.header(HttpHeaders.LINK, "<" + link + ">; rel=\"next\"");
+		}
+		return response;
+	}
+	
 }
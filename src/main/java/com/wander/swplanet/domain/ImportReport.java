@@ -0,0 +1,25 @@
+package com.wander.swplanet.domain;
+
+import java.util.List;
+
+import lombok.Value;
+
+/**
+ * Progress of a planet import: rows written and rows rejected so far, with the reasons of
+ * the first rejections. The last report of an import is {@code complete}.
+ */
+@Value
+public class ImportReport {
+
+	long accepted;
+	long rejected;
+	List<Rejection> rejections;
+	boolean complete;
+
+	@Value
+	public static class Rejection {
+		long line;
+		String reason;
+	}
+
+}
@@ -4,6 +4,7 @@ import javax.validation.constraints.NotEmpty;
 import javax.validation.constraints.NotNull;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
 import org.springframework.data.relational.core.mapping.Table;
 
 import lombok.AllArgsConstructor;
@@ -28,5 +29,7 @@ public class Planet {
 	private String climate;
 	private String terrain;
 	private Long filmAppearences;
+	@Version
+	private Long version;
 	
 }
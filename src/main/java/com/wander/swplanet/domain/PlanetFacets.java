@@ -0,0 +1,16 @@
+package com.wander.swplanet.domain;
+
+import java.util.List;
+import java.util.Map;
+
+import lombok.Value;
+
+@Value
+public class PlanetFacets {
+	
+	int total;
+	Map<String, Map<String, Integer>> counts;
+	List<Planet> planets;
+	Integer next;
+	
+}
@@ -0,0 +1,17 @@
+package com.wander.swplanet.domain;
+
+import java.util.List;
+
+import lombok.Value;
+
+@Value
+public class PlanetPage {
+	
+	List<Planet> planets;
+	Integer next;
+	
+	public boolean hasNext() {
+		return next != null;
+	}
+	
+}
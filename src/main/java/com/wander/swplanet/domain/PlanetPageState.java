@@ -0,0 +1,16 @@
+package com.wander.swplanet.domain;
+
+import lombok.Value;
+
+/**
+ * Count, highest id and sums of the ids and versions of the planets on a listing page.
+ */
+@Value
+public class PlanetPageState {
+	
+	long count;
+	long highestId;
+	long idSum;
+	long versionSum;
+	
+}
@@ -0,0 +1,418 @@
+package com.wander.swplanet.index;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.annotation.PreDestroy;
+
+import org.roaringbitmap.FastAggregation;
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.wander.swplanet.domain.Planet;
+import com.wander.swplanet.repository.PlanetRepository;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Inverted index from the comma-separated climate and terrain tokens of each planet to the
+ * ids of the planets carrying them. Bitmaps are never modified once published, so queries
+ * run without locking; writes replace the bitmaps they touch, copying each of them once per
+ * batch of planets. Only the bitmaps are kept: the tokens of a planet are found again in
+ * them when it changes. The index is built from the database, a page of planets at a time,
+ * when the application starts, rebuilt every {@code planets.index.refresh-interval} and
+ * follows the writes made through this instance in between.
+ * <p>
+ * The set of indexed ids doubles as a membership filter for lookups by id. It only rejects
+ * ids up to the highest one read by the last rebuild; higher ids may have been created by
+ * another writer since and are always let through. Another writer may also have created an
+ * id below that mark since, so callers confirm a rejected id before reporting it missing
+ * and record the planets found that way with {@link #recordFalseNegative(Planet)}.
+ */
+@Component
+@Slf4j
+public class PlanetFacetIndex {
+
+	public static final String CLIMATE = "climate";
+	public static final String TERRAIN = "terrain";
+
+	private static final int REBUILD_PAGE_SIZE = 1000;
+
+	private final PlanetRepository planetRepository;
+	private final Duration refreshInterval;
+	private volatile State state = new State(true);
+	private volatile Disposable refreshes;
+	private List<Consumer<State>> pendingWrites;
+	private volatile boolean ready;
+	private final LongAdder rejectedLookups = new LongAdder();
+	private final LongAdder passedLookups = new LongAdder();
+	private final LongAdder falsePositiveLookups = new LongAdder();
+	private final LongAdder falseNegativeLookups = new LongAdder();
+
+	public PlanetFacetIndex(PlanetRepository planetRepository,
+			@Value("${planets.index.refresh-interval:10m}") Duration refreshInterval) {
+		this.planetRepository = planetRepository;
+		this.refreshInterval = refreshInterval;
+	}
+
+	public synchronized void put(Planet planet) {
+		apply(current -> current.put(planet));
+	}
+
+	public synchronized void putAll(List<Planet> planets) {
+		apply(current -> current.putAll(planets));
+	}
+
+	public synchronized void remove(int id) {
+		apply(current -> current.remove(id));
+	}
+
+	public boolean isReady() {
+		return ready;
+	}
+
+	public int size() {
+		return state.all.getCardinality();
+	}
+
+	public boolean mightContain(int id) {
+		State current = state;
+		if (!ready || id > current.rebuiltHighestId) {
+			return true;
+		}
+		boolean contains = current.all.contains(id);
+		(contains ? passedLookups : rejectedLookups).increment();
+		return contains;
+	}
+
+	/**
+	 * Records a lookup let through by {@link #mightContain(int)} for an id that did not exist.
+	 */
+	public void recordFalsePositive() {
+		falsePositiveLookups.increment();
+	}
+
+	/**
+	 * Records a planet found for an id rejected by {@link #mightContain(int)}, and indexes it
+	 * so later lookups are let through.
+	 */
+	public void recordFalseNegative(Planet planet) {
+		falseNegativeLookups.increment();
+		put(planet);
+	}
+
+	public long getRejectedLookups() {
+		return rejectedLookups.sum();
+	}
+
+	public long getPassedLookups() {
+		return passedLookups.sum();
+	}
+
+	public long getFalsePositiveLookups() {
+		return falsePositiveLookups.sum();
+	}
+
+	public long getFalseNegativeLookups() {
+		return falseNegativeLookups.sum();
+	}
+
+	/**
+	 * Share of lookups for missing ids that were let through, or {@link Double#NaN} before any.
+	 */
+	public double falsePositiveRate() {
+		long falsePositives = falsePositiveLookups.sum();
+		long missing = falsePositives + rejectedLookups.sum() - falseNegativeLookups.sum();
+		return missing == 0 ? Double.NaN : (double) falsePositives / missing;
+	}
+
+	public long idFilterSizeInBytes() {
+		return state.all.getLongSizeInBytes();
+	}
+
+	/**
+	 * Planets carrying all ({@code matchAll}) or any of the climate tokens and, likewise,
+	 * of the terrain tokens, from the id {@code after}. Empty token lists leave a facet
+	 * unconstrained. Counts are given per facet token among the matching planets.
+	 */
+	public Match match(Collection<String> climates, Collection<String> terrains, boolean matchAll, int after, int limit) {
+		State current = state;
+		RoaringBitmap matched = current.all;
+		matched = RoaringBitmap.and(matched, current.select(CLIMATE, climates, matchAll));
+		matched = RoaringBitmap.and(matched, current.select(TERRAIN, terrains, matchAll));
+
+		List<Integer> ids = new ArrayList<>(Math.min(limit, matched.getCardinality()));
+		PeekableIntIterator iterator = matched.getIntIterator();
+		iterator.advanceIfNeeded(after + 1);
+		while (iterator.hasNext() && ids.size() < limit) {
+			ids.add(iterator.next());
+		}
+		Integer next = iterator.hasNext() && !ids.isEmpty() ? ids.get(ids.size() - 1) : null;
+
+		Map<String, Map<String, Integer>> counts = new LinkedHashMap<>();
+		counts.put(CLIMATE, current.count(CLIMATE, matched));
+		counts.put(TERRAIN, current.count(TERRAIN, matched));
+		return new Match(matched.getCardinality(), counts, ids, next);
+	}
+
+	/**
+	 * Reads every planet into a new index, in pages by id, and swaps it in. Writes made while
+	 * the rebuild runs are applied to the live index and replayed onto the new one before the
+	 * swap.
+	 */
+	public Mono<Integer> rebuild() {
+		return Mono.defer(() -> {
+					State rebuilt = new State(false);
+					synchronized (this) {
+						pendingWrites = new ArrayList<>();
+					}
+					return readPage(0)
+							.expand(page -> page.size() < REBUILD_PAGE_SIZE
+									? Mono.empty()
+									: readPage(page.get(page.size() - 1).getId()))
+							.doOnNext(page -> page.forEach(rebuilt::load))
+							.then(Mono.fromCallable(() -> swap(rebuilt)))
+							.doOnError(e -> clearPendingWrites());
+				})
+				.name("planet.index.rebuild").metrics();
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void start() {
+		refreshes = Flux.interval(Duration.ZERO, refreshInterval)
+				.onBackpressureDrop()
+				.concatMap(tick -> rebuild()
+						.doOnNext(size -> log.info("Planet facet index built with {} planets", size))
+						.onErrorResume(e -> {
+							log.warn("Planet facet index could not be built: {}", e.toString());
+							return Mono.empty();
+						}))
+				.subscribe();
+	}
+
+	@PreDestroy
+	public void stop() {
+		if (refreshes != null) {
+			refreshes.dispose();
+		}
+	}
+
+	static Set<String> tokens(String value) {
+		if (value == null) {
+			return Set.of();
+		}
+		return Stream.of(value.split(","))
+				.map(token -> token.trim().toLowerCase(Locale.ROOT))
+				.filter(token -> !token.isEmpty())
+				.collect(Collectors.toSet());
+	}
+
+	private Mono<List<Planet>> readPage(int after) {
+		return planetRepository.findPage(after, REBUILD_PAGE_SIZE).collectList();
+	}
+
+	private void apply(Consumer<State> write) {
+		write.accept(state);
+		if (pendingWrites != null) {
+			pendingWrites.add(write);
+		}
+	}
+
+	private synchronized int swap(State rebuilt) {
+		rebuilt.published = true;
+		pendingWrites.forEach(write -> write.accept(rebuilt));
+		pendingWrites = null;
+		state = rebuilt;
+		ready = true;
+		return rebuilt.all.getCardinality();
+	}
+
+	private synchronized void clearPendingWrites() {
+		pendingWrites = null;
+	}
+
+	@lombok.Value
+	public static class Match {
+		int total;
+		Map<String, Map<String, Integer>> counts;
+		List<Integer> ids;
+		Integer next;
+	}
+
+	/**
+	 * Bitmaps of an unpublished state are updated in place while it is being built; once
+	 * published, every write copies the bitmaps it changes and swaps the copies in when done.
+	 */
+	private static class State {
+
+		private static final RoaringBitmap EMPTY = new RoaringBitmap();
+
+		private final Map<String, Map<String, RoaringBitmap>> facets = Map.of(
+				CLIMATE, new ConcurrentHashMap<>(), TERRAIN, new ConcurrentHashMap<>());
+		private volatile RoaringBitmap all = new RoaringBitmap();
+		private volatile int rebuiltHighestId;
+		private boolean published;
+
+		State(boolean published) {
+			this.published = published;
+		}
+
+		/**
+		 * Indexes a planet read from the database by a rebuild, raising the highest id the
+		 * membership filter answers for. Writes replayed or made later do not raise it.
+		 */
+		void load(Planet planet) {
+			put(planet);
+			rebuiltHighestId = Math.max(rebuiltHighestId, planet.getId());
+		}
+
+		void put(Planet planet) {
+			putAll(List.of(planet));
+		}
+
+		void putAll(Collection<Planet> planets) {
+			Changes changes = new Changes();
+			planets.forEach(planet -> put(planet, changes));
+			changes.publish();
+		}
+
+		void remove(int id) {
+			Changes changes = new Changes();
+			remove(id, changes);
+			changes.publish();
+		}
+
+		RoaringBitmap select(String facet, Collection<String> tokens, boolean matchAll) {
+			if (tokens == null || tokens.isEmpty()) {
+				return all;
+			}
+			Map<String, RoaringBitmap> index = facets.get(facet);
+			List<RoaringBitmap> bitmaps = tokens.stream()
+					.map(token -> index.getOrDefault(token.trim().toLowerCase(Locale.ROOT), new RoaringBitmap()))
+					.collect(Collectors.toList());
+			return matchAll ? FastAggregation.and(bitmaps.iterator()) : FastAggregation.or(bitmaps.iterator());
+		}
+
+		Map<String, Integer> count(String facet, RoaringBitmap matched) {
+			Map<String, Integer> counts = new TreeMap<>();
+			facets.get(facet).forEach((token, bitmap) -> {
+				int count = RoaringBitmap.andCardinality(bitmap, matched);
+				if (count > 0) {
+					counts.put(token, count);
+				}
+			});
+			return counts;
+		}
+
+		private void put(Planet planet, Changes changes) {
+			remove(planet.getId(), changes);
+			tokens(planet.getClimate()).forEach(token -> changes.facet(CLIMATE, token).add(planet.getId()));
+			tokens(planet.getTerrain()).forEach(token -> changes.facet(TERRAIN, token).add(planet.getId()));
+			changes.all().add(planet.getId());
+		}
+
+		/**
+		 * Takes the id out of every token bitmap holding it. Ids not indexed yet, such as
+		 * every id read by a rebuild, are skipped without looking at the tokens.
+		 */
+		private void remove(int id, Changes changes) {
+			if (!changes.contains(id)) {
+				return;
+			}
+			for (String facet : List.of(CLIMATE, TERRAIN)) {
+				for (String token : changes.tokens(facet)) {
+					if (changes.current(facet, token).contains(id)) {
+						changes.facet(facet, token).remove(id);
+					}
+				}
+			}
+			changes.all().remove(id);
+		}
+
+		private RoaringBitmap writable(RoaringBitmap bitmap) {
+			return published ? bitmap.clone() : bitmap;
+		}
+
+		/**
+		 * The bitmaps changed by one write, each taken writable the first time it is touched.
+		 */
+		private class Changes {
+
+			private final Map<String, Map<String, RoaringBitmap>> facetBitmaps = Map.of(
+					CLIMATE, new HashMap<>(), TERRAIN, new HashMap<>());
+			private RoaringBitmap allBitmap;
+
+			RoaringBitmap facet(String facet, String token) {
+				return facetBitmaps.get(facet).computeIfAbsent(token, key -> {
+					RoaringBitmap bitmap = facets.get(facet).get(key);
+					return bitmap == null ? new RoaringBitmap() : writable(bitmap);
+				});
+			}
+
+			boolean contains(int id) {
+				return (allBitmap != null ? allBitmap : all).contains(id);
+			}
+
+			/**
+			 * The tokens of the facet, published or added by this write.
+			 */
+			Set<String> tokens(String facet) {
+				Set<String> tokens = new HashSet<>(facets.get(facet).keySet());
+				tokens.addAll(facetBitmaps.get(facet).keySet());
+				return tokens;
+			}
+
+			/**
+			 * The bitmap of the token as this write sees it, without taking it writable.
+			 */
+			RoaringBitmap current(String facet, String token) {
+				RoaringBitmap changed = facetBitmaps.get(facet).get(token);
+				return changed != null ? changed : facets.get(facet).getOrDefault(token, EMPTY);
+			}
+
+			RoaringBitmap all() {
+				if (allBitmap == null) {
+					allBitmap = writable(all);
+				}
+				return allBitmap;
+			}
+
+			void publish() {
+				facetBitmaps.forEach((facet, bitmaps) -> bitmaps.forEach((token, bitmap) -> {
+					if (bitmap.isEmpty()) {
+						facets.get(facet).remove(token);
+					} else {
+						facets.get(facet).put(token, bitmap);
+					}
+				}));
+				if (allBitmap != null) {
+					all = allBitmap;
+				}
+			}
+
+		}
+
+	}
+
+}
@@ -1,13 +1,37 @@
 package com.wander.swplanet.repository;
 
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 
 import com.wander.swplanet.domain.Planet;
 
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
-public interface PlanetRepository extends ReactiveCrudRepository<Planet, Integer> {
+public interface PlanetRepository extends ReactiveCrudRepository<Planet, Integer>, PlanetRepositoryCustom {
 	
 	public Mono<Planet> findById(Integer id);
+	
+	@Query("SELECT * FROM planet WHERE id > :after ORDER BY id LIMIT :limit")
+	public Flux<Planet> findPage(int after, int limit);
+	
+	@Query("SELECT * FROM planet WHERE id > :after ORDER BY id")
+	public Flux<Planet> findAllAfter(int after);
+	
+	@Modifying
+	@Query("UPDATE planet SET name = :name, climate = :climate, terrain = :terrain, "
+			+ "film_appearences = :filmAppearences, version = version + 1 WHERE id = :id")
+	public Mono<Integer> updatePlanet(int id, String name, String climate, String terrain, Long filmAppearences);
+	
+	@Modifying
+	@Query("UPDATE planet SET name = :name, climate = :climate, terrain = :terrain, "
+			+ "film_appearences = :filmAppearences, version = version + 1 WHERE id = :id AND version = :version")
+	public Mono<Integer> updatePlanetVersion(int id, long version, String name, String climate, String terrain,
+			Long filmAppearences);
+	
+	@Modifying
+	@Query("DELETE FROM planet WHERE id = :id")
+	public Mono<Integer> deletePlanet(int id);
 
 }
@@ -0,0 +1,37 @@
+package com.wander.swplanet.repository;
+
+import java.util.List;
+import java.util.function.Function;
+
+import com.wander.swplanet.domain.Planet;
+import com.wander.swplanet.domain.PlanetPageState;
+
+import io.r2dbc.spi.Row;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public interface PlanetRepositoryCustom {
+	
+	Flux<Planet> insertAll(List<Planet> planets);
+	
+	/**
+	 * Planets whose name starts with {@code namePrefix} and whose climate and terrain equal the
+	 * given values, ordered by id from {@code after}. Null filters are ignored.
+	 */
+	Flux<Planet> search(String namePrefix, String climate, String terrain, int after, int limit);
+	
+	/**
+	 * Count, highest id, id sum and version sum of the page of planets from {@code after}.
+	 * Ids are never reused and every update moves the version on, so any write to the page
+	 * changes the result; the page is read from the primary key only.
+	 */
+	Mono<PlanetPageState> findPageState(int after, int limit);
+	
+	/**
+	 * Every planet row, ordered by id, read {@code fetchSize} rows at a time as the result is
+	 * consumed and handed to {@code encoder} as it is, without mapping it to a planet. Rows
+	 * written during the export show up when their page has not been read yet.
+	 */
+	<T> Flux<T> exportAll(int fetchSize, Function<Row, T> encoder);
+	
+}
@@ -0,0 +1,173 @@
+package com.wander.swplanet.repository;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.relational.core.dialect.Escaper;
+import org.springframework.data.relational.core.query.Criteria;
+import org.springframework.data.relational.core.query.Query;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.r2dbc.core.DatabaseClient.GenericExecuteSpec;
+
+import com.wander.swplanet.domain.Planet;
+import com.wander.swplanet.domain.PlanetPageState;
+
+import io.r2dbc.spi.Row;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public class PlanetRepositoryCustomImpl implements PlanetRepositoryCustom {
+	
+	private static final Escaper LIKE_ESCAPER = Escaper.of('\\');
+	private static final String INSERT = "INSERT INTO planet (name, climate, terrain, film_appearences) VALUES ";
+	private static final String AUTO_INCREMENT_INCREMENT = "SELECT @@auto_increment_increment";
+	private static final String PAGE_STATE = "SELECT COUNT(*) AS planets, COALESCE(MAX(id), 0) AS highest_id, "
+			+ "COALESCE(SUM(id), 0) AS id_sum, COALESCE(SUM(version), 0) AS version_sum "
+			+ "FROM (SELECT id, version FROM planet WHERE id > :after ORDER BY id LIMIT :limit) listed";
+	private static final String EXPORT = "SELECT id, name, climate, terrain, film_appearences, version FROM planet "
+			+ "WHERE id > :after ORDER BY id LIMIT :limit";
+	
+	private final DatabaseClient databaseClient;
+	private final R2dbcEntityTemplate entityTemplate;
+	private final int chunkSize;
+	private final Mono<Integer> autoIncrementIncrement;
+	
+	public PlanetRepositoryCustomImpl(DatabaseClient databaseClient, R2dbcEntityTemplate entityTemplate,
+			@Value("${planets.batch.chunk-size:500}") int chunkSize) {
+		this.databaseClient = databaseClient;
+		this.entityTemplate = entityTemplate;
+		this.chunkSize = chunkSize;
+		this.autoIncrementIncrement = databaseClient.sql(AUTO_INCREMENT_INCREMENT)
+				.map(row -> ((Number) row.get(0)).intValue())
+				.one()
+				.cache(increment -> Duration.ofMillis(Long.MAX_VALUE), e -> Duration.ZERO, () -> Duration.ZERO);
+	}
+
+	@Override
+	public Flux<Planet> insertAll(List<Planet> planets) {
+		return Flux.fromIterable(planets)
+				.buffer(chunkSize)
+				.concatMap(this::insertChunk);
+	}
+	
+	@Override
+	public Flux<Planet> search(String namePrefix, String climate, String terrain, int after, int limit) {
+		Criteria criteria = Criteria.where("id").greaterThan(after);
+		if (namePrefix != null) {
+			criteria = criteria.and("name").like(LIKE_ESCAPER.escape(namePrefix) + "%");
+		}
+		if (climate != null) {
+			criteria = criteria.and("climate").is(climate);
+		}
+		if (terrain != null) {
+			criteria = criteria.and("terrain").is(terrain);
+		}
+		return entityTemplate.select(Planet.class)
+				.matching(Query.query(criteria).sort(Sort.by("id")).limit(limit))
+				.all();
+	}
+	
+	/**
+	 * Each figure is read as a number of its own: MySQL types a string built from aggregates
+	 * with CONCAT as binary, which the driver does not decode as text.
+	 */
+	@Override
+	public Mono<PlanetPageState> findPageState(int after, int limit) {
+		return databaseClient.sql(PAGE_STATE)
+				.bind("after", after)
+				.bind("limit", limit)
+				.map(row -> new PlanetPageState(longValue(row.get("planets")), longValue(row.get("highest_id")),
+						longValue(row.get("id_sum")), longValue(row.get("version_sum"))))
+				.one();
+	}
+	
+	/**
+	 * r2dbc-mysql reads the whole result of a text query before handing out its rows and
+	 * ignores the fetch size, so the table is read a page of {@code fetchSize} rows at a time
+	 * instead, each page starting after the last id of the previous one and queried once
+	 * that one is consumed.
+	 */
+	@Override
+	public <T> Flux<T> exportAll(int fetchSize, Function<Row, T> encoder) {
+		return exportPage(0, fetchSize, encoder)
+				.expand(page -> page.size() < fetchSize
+						? Mono.empty()
+						: exportPage(page.get(page.size() - 1).getId(), fetchSize, encoder))
+				.flatMapIterable(page -> page, 1)
+				.map(ExportedRow::getValue);
+	}
+	
+	private <T> Mono<List<ExportedRow<T>>> exportPage(int after, int limit, Function<Row, T> encoder) {
+		return databaseClient.sql(EXPORT)
+				.bind("after", after)
+				.bind("limit", limit)
+				.map((row, metadata) -> new ExportedRow<>(((Number) row.get("id")).intValue(), encoder.apply(row)))
+				.all()
+				.collectList();
+	}
+	
+	private Flux<Planet> insertChunk(List<Planet> chunk) {
+		StringBuilder sql = new StringBuilder(INSERT);
+		for (int i = 0; i < chunk.size(); i++) {
+			sql.append(i == 0 ? "" : ", ")
+				.append("(:name").append(i)
+				.append(", :climate").append(i)
+				.append(", :terrain").append(i)
+				.append(", :filmAppearences").append(i).append(')');
+		}
+		GenericExecuteSpec spec = databaseClient.sql(sql.toString());
+		for (int i = 0; i < chunk.size(); i++) {
+			Planet planet = chunk.get(i);
+			spec = bind(spec, "name" + i, planet.getName(), String.class);
+			spec = bind(spec, "climate" + i, planet.getClimate(), String.class);
+			spec = bind(spec, "terrain" + i, planet.getTerrain(), String.class);
+			spec = bind(spec, "filmAppearences" + i, planet.getFilmAppearences(), Long.class);
+		}
+		return spec.filter(statement -> statement.returnGeneratedValues("id"))
+				.map(row -> ((Number) row.get("id")).intValue())
+				.all()
+				.collectList()
+				.flatMap(ids -> ids.size() == chunk.size() || chunk.size() == 1
+						? Mono.just(withGeneratedIds(chunk, ids, 1))
+						: autoIncrementIncrement.map(increment -> withGeneratedIds(chunk, ids, increment)))
+				.flatMapIterable(inserted -> inserted);
+	}
+	
+	/**
+	 * MySQL reports only the id of the first row of a multi-row insert. InnoDB allocates the
+	 * ids of a single statement with a known row count in one step, each
+	 * {@code auto_increment_increment} apart, so the others follow from the first; the
+	 * setting is read once from the server the first time it is needed.
+	 */
+	private List<Planet> withGeneratedIds(List<Planet> chunk, List<Integer> ids, int increment) {
+		if (ids.isEmpty()) {
+			throw new IllegalStateException("No generated ids returned for planet batch insert");
+		}
+		List<Planet> inserted = new ArrayList<>(chunk.size());
+		for (int i = 0; i < chunk.size(); i++) {
+			int id = ids.size() == chunk.size() ? ids.get(i) : ids.get(0) + i * increment;
+			inserted.add(chunk.get(i).withId(id).withVersion(0L));
+		}
+		return inserted;
+	}
+	
+	private static long longValue(Object value) {
+		return ((Number) value).longValue();
+	}
+	
+	private static GenericExecuteSpec bind(GenericExecuteSpec spec, String name, Object value, Class<?> type) {
+		return value != null ? spec.bind(name, value) : spec.bindNull(name, type);
+	}
+	
+	@lombok.Value
+	private static class ExportedRow<T> {
+		int id;
+		T value;
+	}
+
+}
@@ -0,0 +1,12 @@
+package com.wander.swplanet.security;
+
+import lombok.Value;
+
+@Value
+public class AccessToken {
+	
+	String token;
+	String tokenType;
+	long expiresIn;
+	
+}
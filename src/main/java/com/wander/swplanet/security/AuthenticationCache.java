@@ -0,0 +1,118 @@
+package com.wander.swplanet.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Objects;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.wander.swplanet.domain.User;
+
+/**
+ * Successful authentications keyed by username plus a keyed hash of the presented secret.
+ * The raw secret is never stored and the hash key is regenerated on every start.
+ */
+@Component
+public class AuthenticationCache {
+
+	private static final String HASH_ALGORITHM = "HmacSHA256";
+
+	private final Cache<CredentialsKey, Authentication> cache;
+	private final SecretKeySpec hashKey;
+
+	public AuthenticationCache(
+			@Value("${security.authentication-cache.maximum-size:10000}") long maximumSize,
+			@Value("${security.authentication-cache.time-to-live:5m}") Duration timeToLive) {
+		this.cache = Caffeine.newBuilder()
+				.maximumSize(maximumSize)
+				.expireAfterWrite(timeToLive)
+				.recordStats()
+				.build();
+		byte[] key = new byte[32];
+		new SecureRandom().nextBytes(key);
+		this.hashKey = new SecretKeySpec(key, HASH_ALGORITHM);
+	}
+
+	public Authentication get(String username, String secret) {
+		return cache.getIfPresent(key(username, secret));
+	}
+
+	public void put(String username, String secret, Authentication authentication) {
+		cache.put(key(username, secret), authentication);
+	}
+
+	public void invalidate(String username) {
+		cache.asMap().keySet().removeIf(key -> key.username.equals(username));
+	}
+
+	public void invalidate(User user) {
+		invalidate(user.getUsername());
+		if (user.getId() != null) {
+			cache.asMap().values().removeIf(authentication -> authentication.getPrincipal() instanceof User
+					&& user.getId().equals(((User) authentication.getPrincipal()).getId()));
+		}
+	}
+
+	public void invalidateAll() {
+		cache.invalidateAll();
+	}
+
+	public CacheStats stats() {
+		return cache.stats();
+	}
+
+	public Cache<?, ?> getCache() {
+		return cache;
+	}
+
+	private CredentialsKey key(String username, String secret) {
+		try {
+			Mac mac = Mac.getInstance(HASH_ALGORITHM);
+			mac.init(hashKey);
+			return new CredentialsKey(username, mac.doFinal(secret.getBytes(StandardCharsets.UTF_8)));
+		} catch (GeneralSecurityException e) {
+			throw new IllegalStateException("Unable to hash credentials", e);
+		}
+	}
+
+	private static final class CredentialsKey {
+
+		private final String username;
+		private final byte[] secretHash;
+
+		private CredentialsKey(String username, byte[] secretHash) {
+			this.username = username;
+			this.secretHash = secretHash;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (this == other) {
+				return true;
+			}
+			if (!(other instanceof CredentialsKey)) {
+				return false;
+			}
+			CredentialsKey that = (CredentialsKey) other;
+			return username.equals(that.username) && Arrays.equals(secretHash, that.secretHash);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(username) * 31 + Arrays.hashCode(secretHash);
+		}
+
+	}
+
+}
@@ -0,0 +1,31 @@
+package com.wander.swplanet.security;
+
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+
+import lombok.RequiredArgsConstructor;
+import reactor.core.publisher.Mono;
+
+@RequiredArgsConstructor
+public class CachingReactiveAuthenticationManager implements ReactiveAuthenticationManager {
+
+	private final ReactiveAuthenticationManager delegate;
+	private final AuthenticationCache authenticationCache;
+
+	@Override
+	public Mono<Authentication> authenticate(Authentication authentication) {
+		if (!(authentication instanceof UsernamePasswordAuthenticationToken) || authentication.getCredentials() == null) {
+			return delegate.authenticate(authentication);
+		}
+		String username = authentication.getName();
+		String secret = authentication.getCredentials().toString();
+		Authentication cached = authenticationCache.get(username, secret);
+		if (cached != null) {
+			return Mono.just(cached);
+		}
+		return delegate.authenticate(authentication)
+				.doOnNext(authenticated -> authenticationCache.put(username, secret, authenticated));
+	}
+
+}
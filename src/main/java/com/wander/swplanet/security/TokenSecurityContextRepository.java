@@ -0,0 +1,45 @@
+package com.wander.swplanet.security;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.security.web.server.context.ServerSecurityContextRepository;
+import org.springframework.security.web.server.util.matcher.ServerWebExchangeMatcher;
+import org.springframework.web.server.ServerWebExchange;
+
+import lombok.RequiredArgsConstructor;
+import reactor.core.publisher.Mono;
+
+/**
+ * Authenticates requests carrying a bearer token, except on {@code tokenIssuing} exchanges:
+ * a token must not be able to mint its own successor, so issuing one always takes the
+ * password.
+ */
+@RequiredArgsConstructor
+public class TokenSecurityContextRepository implements ServerSecurityContextRepository {
+
+	private static final String BEARER_PREFIX = "Bearer ";
+
+	private final TokenService tokenService;
+	private final ServerSecurityContextRepository delegate;
+	private final ServerWebExchangeMatcher tokenIssuing;
+
+	@Override
+	public Mono<Void> save(ServerWebExchange exchange, SecurityContext context) {
+		return delegate.save(exchange, context);
+	}
+
+	@Override
+	public Mono<SecurityContext> load(ServerWebExchange exchange) {
+		String authorization = exchange.getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+		if (authorization == null || !authorization.regionMatches(true, 0, BEARER_PREFIX, 0, BEARER_PREFIX.length())) {
+			return delegate.load(exchange);
+		}
+		return tokenIssuing.matches(exchange)
+				.flatMap(match -> match.isMatch()
+						? Mono.empty()
+						: Mono.justOrEmpty(tokenService.verify(authorization.substring(BEARER_PREFIX.length()).trim()))
+							.map(SecurityContextImpl::new));
+	}
+
+}
@@ -0,0 +1,126 @@
+package com.wander.swplanet.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Issues and verifies self-contained HMAC-SHA256 signed tokens of the form
+ * {@code base64url(username:authorities:expiresAt).base64url(signature)}.
+ */
+@Component
+@Slf4j
+public class TokenService {
+
+	private static final String SIGNATURE_ALGORITHM = "HmacSHA256";
+	private static final char SEPARATOR = ':';
+
+	private final SecretKeySpec signingKey;
+	private final Duration timeToLive;
+	private final Clock clock;
+
+	@Autowired
+	public TokenService(
+			@Value("${security.token.secret:}") String secret,
+			@Value("${security.token.time-to-live:1h}") Duration timeToLive) {
+		this(secret, timeToLive, Clock.systemUTC());
+	}
+
+	TokenService(String secret, Duration timeToLive, Clock clock) {
+		this.signingKey = new SecretKeySpec(secretBytes(secret), SIGNATURE_ALGORITHM);
+		this.timeToLive = timeToLive;
+		this.clock = clock;
+	}
+
+	public AccessToken issue(Authentication authentication) {
+		Instant expiresAt = clock.instant().plus(timeToLive);
+		String authorities = authentication.getAuthorities().stream()
+				.map(GrantedAuthority::getAuthority)
+				.collect(Collectors.joining(","));
+		String payload = authentication.getName() + SEPARATOR + authorities + SEPARATOR + expiresAt.getEpochSecond();
+		byte[] payloadBytes = payload.getBytes(StandardCharsets.UTF_8);
+		String token = encode(payloadBytes) + "." + encode(sign(payloadBytes));
+		return new AccessToken(token, "Bearer", timeToLive.getSeconds());
+	}
+
+	public Optional<Authentication> verify(String token) {
+		int dot = token.indexOf('.');
+		if (dot <= 0 || dot == token.length() - 1) {
+			return Optional.empty();
+		}
+		try {
+			byte[] payloadBytes = decode(token.substring(0, dot));
+			byte[] signature = decode(token.substring(dot + 1));
+			if (!MessageDigest.isEqual(sign(payloadBytes), signature)) {
+				return Optional.empty();
+			}
+			String payload = new String(payloadBytes, StandardCharsets.UTF_8);
+			int expiresAtSeparator = payload.lastIndexOf(SEPARATOR);
+			int authoritiesSeparator = payload.lastIndexOf(SEPARATOR, expiresAtSeparator - 1);
+			if (authoritiesSeparator <= 0) {
+				return Optional.empty();
+			}
+			long expiresAt = Long.parseLong(payload.substring(expiresAtSeparator + 1));
+			if (clock.instant().getEpochSecond() >= expiresAt) {
+				return Optional.empty();
+			}
+			String username = payload.substring(0, authoritiesSeparator);
+			String authorities = payload.substring(authoritiesSeparator + 1, expiresAtSeparator);
+			return Optional.of(new UsernamePasswordAuthenticationToken(username, null,
+					AuthorityUtils.commaSeparatedStringToAuthorityList(authorities)));
+		} catch (IllegalArgumentException e) {
+			log.debug("Rejecting malformed token", e);
+			return Optional.empty();
+		}
+	}
+
+	private byte[] sign(byte[] payload) {
+		try {
+			Mac mac = Mac.getInstance(SIGNATURE_ALGORITHM);
+			mac.init(signingKey);
+			return mac.doFinal(payload);
+		} catch (GeneralSecurityException e) {
+			throw new IllegalStateException("Unable to sign token", e);
+		}
+	}
+
+	private static byte[] secretBytes(String secret) {
+		if (StringUtils.hasText(secret)) {
+			return Base64.getDecoder().decode(secret);
+		}
+		log.warn("security.token.secret is not set, tokens will not survive a restart");
+		byte[] generated = new byte[32];
+		new SecureRandom().nextBytes(generated);
+		return generated;
+	}
+
+	private static String encode(byte[] bytes) {
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+	}
+
+	private static byte[] decode(String value) {
+		return Base64.getUrlDecoder().decode(value);
+	}
+
+}
@@ -0,0 +1,108 @@
+package com.wander.swplanet.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wander.swplanet.codec.PlanetCsv;
+import com.wander.swplanet.repository.PlanetRepository;
+
+import io.r2dbc.spi.Row;
+import reactor.core.publisher.Flux;
+
+/**
+ * Streams the whole planet table as NDJSON or CSV. Rows are encoded straight from the
+ * result set, never mapped to planets, and grouped into buffers of {@code rows-per-buffer}
+ * rows; the table is queried {@code fetch-size} rows at a time, by id, as the response is
+ * written, so memory use does not grow with the table.
+ */
+@Component
+public class PlanetExporter {
+
+	private static final byte[] CSV_HEADER = PlanetCsv.formatLine(PlanetCsv.ID, PlanetCsv.NAME, PlanetCsv.CLIMATE,
+			PlanetCsv.TERRAIN, PlanetCsv.FILM_APPEARENCES, PlanetCsv.VERSION).getBytes(StandardCharsets.UTF_8);
+
+	private final PlanetRepository planetRepository;
+	private final JsonFactory jsonFactory;
+	private final int fetchSize;
+	private final int rowsPerBuffer;
+
+	public PlanetExporter(PlanetRepository planetRepository, ObjectMapper objectMapper,
+			@Value("${planets.export.fetch-size:1000}") int fetchSize,
+			@Value("${planets.export.rows-per-buffer:256}") int rowsPerBuffer) {
+		this.planetRepository = planetRepository;
+		this.jsonFactory = objectMapper.getFactory();
+		this.fetchSize = fetchSize;
+		this.rowsPerBuffer = rowsPerBuffer;
+	}
+
+	/**
+	 * One planet per line, with the fields and names of the JSON API.
+	 */
+	public Flux<DataBuffer> exportNdjson(DataBufferFactory bufferFactory) {
+		return buffers(planetRepository.exportAll(fetchSize, this::ndjsonLine), bufferFactory);
+	}
+
+	/**
+	 * A header line, then one planet per line, in the columns read back by the import.
+	 */
+	public Flux<DataBuffer> exportCsv(DataBufferFactory bufferFactory) {
+		return buffers(Flux.just(CSV_HEADER).concatWith(planetRepository.exportAll(fetchSize, this::csvLine)),
+				bufferFactory);
+	}
+
+	private Flux<DataBuffer> buffers(Flux<byte[]> lines, DataBufferFactory bufferFactory) {
+		return lines.buffer(rowsPerBuffer)
+				.map(chunk -> join(chunk, bufferFactory));
+	}
+
+	private byte[] ndjsonLine(Row row) {
+		ByteArrayOutputStream line = new ByteArrayOutputStream(128);
+		try (JsonGenerator json = jsonFactory.createGenerator(line)) {
+			json.writeStartObject();
+			writeNumber(json, "id", row.get("id"));
+			json.writeStringField("name", row.get("name", String.class));
+			json.writeStringField("climate", row.get("climate", String.class));
+			json.writeStringField("terrain", row.get("terrain", String.class));
+			writeNumber(json, "filmAppearences", row.get("film_appearences"));
+			writeNumber(json, "version", row.get("version"));
+			json.writeEndObject();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		line.write('\n');
+		return line.toByteArray();
+	}
+
+	private byte[] csvLine(Row row) {
+		return PlanetCsv.formatLine(row.get("id"), row.get("name"), row.get("climate"), row.get("terrain"),
+				row.get("film_appearences"), row.get("version")).getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static void writeNumber(JsonGenerator json, String field, Object value) throws IOException {
+		json.writeFieldName(field);
+		if (value == null) {
+			json.writeNull();
+		} else {
+			json.writeNumber(((Number) value).longValue());
+		}
+	}
+
+	private static DataBuffer join(List<byte[]> lines, DataBufferFactory bufferFactory) {
+		int size = lines.stream().mapToInt(line -> line.length).sum();
+		DataBuffer buffer = bufferFactory.allocateBuffer(size);
+		lines.forEach(buffer::write);
+		return buffer;
+	}
+
+}
@@ -0,0 +1,248 @@
+package com.wander.swplanet.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.StringDecoder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wander.swplanet.codec.PlanetCsv;
+import com.wander.swplanet.codec.PlanetMediaTypes;
+import com.wander.swplanet.domain.ImportReport;
+import com.wander.swplanet.domain.Planet;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Imports planets from NDJSON or CSV bodies of any size. Lines are decoded and validated as
+ * they arrive and written {@code chunk-size} at a time, the next chunk being read only once
+ * the previous one is written, so no more than a chunk is held at once. Rows that do not
+ * decode or validate, and rows of a chunk that fails to be written, are rejected without
+ * stopping the import. Imported planets are always created, ids and versions are ignored.
+ */
+@Component
+public class PlanetImporter {
+
+	private static final ResolvableType STRING = ResolvableType.forClass(String.class);
+
+	private final PlanetService planetService;
+	private final ObjectMapper objectMapper;
+	private final Validator validator;
+	private final int chunkSize;
+	private final int maxRejections;
+	private final StringDecoder lineDecoder;
+
+	public PlanetImporter(PlanetService planetService, ObjectMapper objectMapper, Validator validator,
+			@Value("${planets.import.chunk-size:500}") int chunkSize,
+			@Value("${planets.import.max-rejections:100}") int maxRejections,
+			@Value("${planets.import.max-line-length:65536}") int maxLineLength) {
+		this.planetService = planetService;
+		this.objectMapper = objectMapper;
+		this.validator = validator;
+		this.chunkSize = chunkSize;
+		this.maxRejections = maxRejections;
+		this.lineDecoder = StringDecoder.allMimeTypes(List.of("\n"), true);
+		this.lineDecoder.setMaxInMemorySize(maxLineLength);
+	}
+
+	/**
+	 * A report after every chunk written, the last one complete.
+	 */
+	public Flux<ImportReport> importPlanets(Flux<DataBuffer> body, MediaType contentType) {
+		return Flux.defer(() -> {
+			Progress progress = new Progress();
+			RowReader reader = PlanetMediaTypes.TEXT_CSV.isCompatibleWith(contentType)
+					? new CsvRowReader()
+					: new NdjsonRowReader();
+			return lineDecoder.decode(body, STRING, contentType, Collections.emptyMap())
+					.index((index, line) -> read(reader, index + 1, line))
+					.filter(row -> !row.isBlank())
+					.buffer(chunkSize)
+					.concatMap(chunk -> write(chunk, progress), 1)
+					.concatWith(Mono.fromSupplier(() -> progress.report(true)))
+					.onErrorMap(DataBufferLimitException.class, e -> new ResponseStatusException(
+							HttpStatus.PAYLOAD_TOO_LARGE, "Import line longer than the maximum allowed", e));
+		});
+	}
+
+	private Row read(RowReader reader, long line, String text) {
+		String trimmed = text.endsWith("\r") ? text.substring(0, text.length() - 1) : text;
+		if (!StringUtils.hasText(trimmed)) {
+			return Row.blank(line);
+		}
+		try {
+			Planet planet = reader.read(trimmed);
+			if (planet == null) {
+				return Row.blank(line);
+			}
+			planet = planet.withId(null).withVersion(null);
+			Set<ConstraintViolation<Planet>> violations = validator.validate(planet);
+			if (!violations.isEmpty()) {
+				return Row.rejected(line, violations.stream()
+						.map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+						.sorted()
+						.collect(Collectors.joining(", ")));
+			}
+			return Row.valid(line, planet);
+		} catch (IllegalArgumentException e) {
+			return Row.rejected(line, e.getMessage());
+		}
+	}
+
+	private Mono<ImportReport> write(List<Row> chunk, Progress progress) {
+		List<Row> valid = new ArrayList<>(chunk.size());
+		for (Row row : chunk) {
+			if (row.getPlanet() != null) {
+				valid.add(row);
+			} else {
+				progress.reject(row.getLine(), row.getReason());
+			}
+		}
+		if (valid.isEmpty()) {
+			return Mono.fromSupplier(() -> progress.report(false));
+		}
+		return planetService.saveAll(valid.stream().map(Row::getPlanet).collect(Collectors.toList()))
+				.count()
+				.doOnNext(progress::accept)
+				.onErrorResume(e -> Mono.fromRunnable(() -> valid.forEach(row -> progress.reject(row.getLine(),
+						"Not written: " + (e instanceof ResponseStatusException
+								? ((ResponseStatusException) e).getReason()
+								: e.getMessage())))))
+				.then(Mono.fromSupplier(() -> progress.report(false)));
+	}
+
+	private interface RowReader {
+
+		/**
+		 * The planet on a line, or null for a line that holds none, such as a CSV header.
+		 */
+		Planet read(String text);
+
+	}
+
+	private class NdjsonRowReader implements RowReader {
+
+		@Override
+		public Planet read(String text) {
+			try {
+				Planet planet = objectMapper.readValue(text, Planet.class);
+				if (planet == null) {
+					throw new IllegalArgumentException("Not a planet: " + text);
+				}
+				return planet;
+			} catch (JsonProcessingException e) {
+				throw new IllegalArgumentException("Malformed JSON: " + e.getOriginalMessage());
+			}
+		}
+
+	}
+
+	/**
+	 * Columns are named by the first line, in any order; columns it does not know are skipped.
+	 */
+	private static class CsvRowReader implements RowReader {
+
+		private Map<String, Integer> columns;
+
+		@Override
+		public Planet read(String text) {
+			List<String> fields = PlanetCsv.parseLine(text);
+			if (columns == null) {
+				columns = new HashMap<>();
+				for (int i = 0; i < fields.size(); i++) {
+					columns.putIfAbsent(PlanetCsv.column(fields.get(i)), i);
+				}
+				if (!columns.containsKey(PlanetCsv.NAME)) {
+					throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "CSV header must have a name column");
+				}
+				return null;
+			}
+			String films = field(fields, PlanetCsv.FILM_APPEARENCES);
+			try {
+				return Planet.builder()
+						.name(field(fields, PlanetCsv.NAME))
+						.climate(field(fields, PlanetCsv.CLIMATE))
+						.terrain(field(fields, PlanetCsv.TERRAIN))
+						.filmAppearences(films == null ? null : Long.valueOf(films.trim()))
+						.build();
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("Invalid " + PlanetCsv.FILM_APPEARENCES + ": " + films);
+			}
+		}
+
+		private String field(List<String> fields, String column) {
+			Integer index = columns.get(column);
+			if (index == null || index >= fields.size() || fields.get(index).isEmpty()) {
+				return null;
+			}
+			return fields.get(index);
+		}
+
+	}
+
+	private class Progress {
+
+		private long accepted;
+		private long rejected;
+		private final List<ImportReport.Rejection> rejections = new ArrayList<>();
+
+		void accept(long count) {
+			accepted += count;
+		}
+
+		void reject(long line, String reason) {
+			rejected++;
+			if (rejections.size() < maxRejections) {
+				rejections.add(new ImportReport.Rejection(line, reason));
+			}
+		}
+
+		ImportReport report(boolean complete) {
+			return new ImportReport(accepted, rejected, List.copyOf(rejections), complete);
+		}
+
+	}
+
+	@lombok.Value
+	private static class Row {
+		long line;
+		Planet planet;
+		String reason;
+
+		static Row valid(long line, Planet planet) {
+			return new Row(line, planet, null);
+		}
+
+		static Row rejected(long line, String reason) {
+			return new Row(line, null, reason);
+		}
+
+		static Row blank(long line) {
+			return new Row(line, null, null);
+		}
+
+		boolean isBlank() {
+			return planet == null && reason == null;
+		}
+	}
+
+}
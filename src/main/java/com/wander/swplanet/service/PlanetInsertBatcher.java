@@ -0,0 +1,60 @@
+package com.wander.swplanet.service;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.reactive.TransactionalOperator;
+
+import com.wander.swplanet.domain.Planet;
+import com.wander.swplanet.repository.PlanetRepository;
+import com.wander.swplanet.util.MicroBatcher;
+
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Opt-in write path for new planets: inserts arriving together are written as one
+ * multi-row insert instead of one statement each. A planet waits at most
+ * {@code max-delay} for others to join it. Batches are written from the bounded elastic
+ * scheduler, which also completes the callers. Each batch is written in one transaction, so
+ * a batch failing on a constraint leaves no rows behind before its planets are retried
+ * one by one; other failures fail every planet of the batch.
+ */
+@Component
+public class PlanetInsertBatcher {
+
+	static final String METRICS = "planet.repository";
+
+	private final boolean enabled;
+	private final MicroBatcher<Planet, Planet> batcher;
+
+	public PlanetInsertBatcher(PlanetRepository planetRepository, TransactionalOperator transactionalOperator,
+			@Value("${planets.insert-batching.enabled:false}") boolean enabled,
+			@Value("${planets.insert-batching.max-size:64}") int maxSize,
+			@Value("${planets.insert-batching.max-delay:5ms}") Duration maxDelay) {
+		this.enabled = enabled;
+		this.batcher = new MicroBatcher<>(maxSize, maxDelay,
+				planets -> planetRepository.insertAll(planets)
+						.name(METRICS).tag("query", "insertBatch").metrics()
+						.as(transactionalOperator::transactional),
+				planet -> planetRepository.save(planet)
+						.name(METRICS).tag("query", "save").metrics(),
+				DataIntegrityViolationException.class::isInstance,
+				Schedulers.boundedElastic());
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public Mono<Planet> insert(Planet planet) {
+		return batcher.submit(planet);
+	}
+
+	public int waiting() {
+		return batcher.waiting();
+	}
+
+}
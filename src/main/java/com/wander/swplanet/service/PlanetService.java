@@ -1,16 +1,26 @@
 package com.wander.swplanet.service;
 
+import java.util.Comparator;
 import java.util.List;
 
 import javax.validation.Valid;
 
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.reactive.TransactionalOperator;
 import org.springframework.web.server.ResponseStatusException;
 
+import com.wander.swplanet.cache.PlanetCache;
+import com.wander.swplanet.cache.PlanetJsonCache;
+import com.wander.swplanet.client.SwapiCatalogue;
 import com.wander.swplanet.domain.Planet;
+import com.wander.swplanet.domain.PlanetFacets;
+import com.wander.swplanet.domain.PlanetPage;
+import com.wander.swplanet.index.PlanetFacetIndex;
 import com.wander.swplanet.repository.PlanetRepository;
+import com.wander.swplanet.util.ETags;
 
 import lombok.RequiredArgsConstructor;
 import reactor.core.publisher.Flux;
@@ -20,40 +30,256 @@ import reactor.core.publisher.Mono;
 @RequiredArgsConstructor
 public class PlanetService {
 	
+	public static final int DEFAULT_PAGE_SIZE = 100;
+	public static final int MAX_PAGE_SIZE = 500;
+	
+	private static final String SERVICE_METRICS = "planet.service";
+	private static final String REPOSITORY_METRICS = "planet.repository";
+	private static final int ENRICHMENT_CONCURRENCY = 4;
+	
 	private final PlanetRepository planetRepository;
+	private final PlanetCache planetCache;
+	private final PlanetJsonCache planetJsonCache;
+	private final SwapiCatalogue swapiCatalogue;
+	private final PlanetFacetIndex planetFacetIndex;
+	private final PlanetInsertBatcher planetInsertBatcher;
+	private final TransactionalOperator transactionalOperator;
+	
+	public Flux<Planet> stream(int after) {
+		return planetRepository.findAllAfter(after)
+				.name(REPOSITORY_METRICS).tag("query", "findAllAfter").metrics()
+				.name(SERVICE_METRICS).tag("method", "stream").metrics();
+	}
+	
+	/**
+	 * Tag of a listing page, derived from the ids and versions of its planets in the database,
+	 * so that it moves on with writes from any instance. The page is read one planet past its
+	 * size, as the next cursor depends on it.
+	 */
+	public Mono<String> listingETag(int after, int limit) {
+		if (after < 0 || limit < 1) {
+			return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid page cursor or limit"));
+		}
+		int pageSize = Math.min(limit, MAX_PAGE_SIZE);
+		return planetRepository.findPageState(after, pageSize + 1)
+				.name(REPOSITORY_METRICS).tag("query", "findPageState").metrics()
+				.map(state -> ETags.quote(after + "-" + pageSize + "-" + state.getCount() + "-" + state.getHighestId()
+						+ "-" + state.getIdSum() + "-" + state.getVersionSum()));
+	}
+	
+	public Mono<PlanetPage> findPage(int after, int limit) {
+		if (after < 0 || limit < 1) {
+			return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid page cursor or limit"));
+		}
+		int pageSize = Math.min(limit, MAX_PAGE_SIZE);
+		return planetRepository.findPage(after, pageSize + 1)
+				.name(REPOSITORY_METRICS).tag("query", "findPage").metrics()
+				.collectList()
+				.map(planets -> planets.size() > pageSize
+						? new PlanetPage(planets.subList(0, pageSize), planets.get(pageSize - 1).getId())
+						: new PlanetPage(planets, null))
+				.name(SERVICE_METRICS).tag("method", "findPage").metrics();
+	}
+	
+	public Flux<Planet> search(String name, String climate, String terrain, int after, int limit) {
+		if (after < 0 || limit < 1) {
+			return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid page cursor or limit"));
+		}
+		return planetRepository.search(name, climate, terrain, after, Math.min(limit, MAX_PAGE_SIZE))
+				.name(REPOSITORY_METRICS).tag("query", "search").metrics()
+				.name(SERVICE_METRICS).tag("method", "search").metrics();
+	}
 	
-	public Flux<Planet> findAll() {
-		return planetRepository.findAll();
+	public Mono<PlanetFacets> findFacets(List<String> climates, List<String> terrains, boolean matchAll,
+			int after, int limit) {
+		if (after < 0 || limit < 1) {
+			return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid page cursor or limit"));
+		}
+		if (!planetFacetIndex.isReady()) {
+			return Mono.error(new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Planet index is not ready"));
+		}
+		int pageSize = Math.min(limit, MAX_PAGE_SIZE);
+		return Mono.fromSupplier(() -> planetFacetIndex.match(climates, terrains, matchAll, after, pageSize))
+				.flatMap(match -> (match.getIds().isEmpty() ? Flux.<Planet>empty() : planetRepository.findAllById(match.getIds())
+								.name(REPOSITORY_METRICS).tag("query", "findAllById").metrics())
+						.collectSortedList(Comparator.comparing(Planet::getId))
+						.map(planets -> new PlanetFacets(match.getTotal(), match.getCounts(), planets, match.getNext())))
+				.name(SERVICE_METRICS).tag("method", "findFacets").metrics();
 	}
 	
 	public Mono<Planet> findById(Integer id) {
-		return planetRepository.findById(id)
+		return planetCache.get(id, this::findExisting)
 				.switchIfEmpty(monoResponseStatusNotFoundException())
-				.log();
+				.name(SERVICE_METRICS).tag("method", "findById").metrics();
 	}
 	
 	public <T> Mono<T> monoResponseStatusNotFoundException() {
 		return Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND, "Planet not found"));
 	}
 
+	/**
+	 * Like {@link #saveAll(List)}, a planet with an id is updated only if it carries its current
+	 * version; without one it is inserted, which fails with 409 when the id is taken.
+	 */
 	public Mono<Planet> save(Planet planet) {
-		return planetRepository.save(planet);
+		return enrich(planet)
+				.flatMap(this::insert)
+				.onErrorMap(OptimisticLockingFailureException.class,
+						e -> new ResponseStatusException(HttpStatus.CONFLICT, "Planet was changed by another request", e))
+				.onErrorMap(DataIntegrityViolationException.class,
+						e -> new ResponseStatusException(HttpStatus.CONFLICT, "Planet already exists, send its version to update it", e))
+				.doOnNext(planetCache::put)
+				.doOnNext(planetFacetIndex::put)
+				.doOnNext(saved -> changed(saved.getId()))
+				.name(SERVICE_METRICS).tag("method", "save").metrics();
 	}
 	
 	public Mono<Void> update(Planet planet) {
-		return findById(planet.getId())
-				.flatMap(validPlanet -> planetRepository.save(planet))
-				.then();
+		return update(planet, null).then();
+	}
+
+	/**
+	 * A version in {@code ifMatch}, or else in the planet, makes the update a compare-and-set
+	 * that fails with 412, or 409 respectively, once another write has moved the version on.
+	 * Without either the update is unconditional. The updated planet carries its new version
+	 * when it is known.
+	 */
+	public Mono<Planet> update(Planet planet, String ifMatch) {
+		if (ifMatch != null && !ETags.isWildcard(ifMatch)) {
+			Long version = ETags.version(ifMatch);
+			if (version == null) {
+				return Mono.error(new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, "Unknown planet version"));
+			}
+			return update(planet, version, HttpStatus.PRECONDITION_FAILED);
+		}
+		return update(planet, planet.getVersion(), HttpStatus.CONFLICT);
+	}
+
+	private Mono<Planet> update(Planet planet, Long expectedVersion, HttpStatus conflictStatus) {
+		Mono<Integer> updated = expectedVersion == null
+				? planetRepository.updatePlanet(planet.getId(), planet.getName(), planet.getClimate(),
+								planet.getTerrain(), planet.getFilmAppearences())
+						.name(REPOSITORY_METRICS).tag("query", "updatePlanet").metrics()
+				: planetRepository.updatePlanetVersion(planet.getId(), expectedVersion, planet.getName(),
+								planet.getClimate(), planet.getTerrain(), planet.getFilmAppearences())
+						.name(REPOSITORY_METRICS).tag("query", "updatePlanetVersion").metrics();
+		return updated
+				.flatMap(rows -> rows == 0
+						? updateFailure(planet.getId(), expectedVersion, conflictStatus)
+						: Mono.just(planet.withVersion(expectedVersion == null ? null : expectedVersion + 1)))
+				.doOnNext(saved -> {
+					if (saved.getVersion() != null) {
+						planetCache.put(saved);
+					} else {
+						planetCache.evict(saved.getId());
+					}
+				})
+				.doOnNext(planetFacetIndex::put)
+				.doOnNext(saved -> changed(saved.getId()))
+				.doOnError(e -> planetCache.evict(planet.getId()))
+				.name(SERVICE_METRICS).tag("method", "update").metrics();
+	}
+
+	/**
+	 * No row changed: the planet is gone, or, for a conditional update, its version moved on.
+	 */
+	private Mono<Planet> updateFailure(int id, Long expectedVersion, HttpStatus conflictStatus) {
+		if (expectedVersion == null) {
+			return monoResponseStatusNotFoundException();
+		}
+		return planetRepository.existsById(id)
+				.flatMap(exists -> exists
+						? Mono.error(new ResponseStatusException(conflictStatus, "Planet was changed by another request"))
+						: monoResponseStatusNotFoundException());
 	}
 
 	public Mono<Void> delete(int id) {
-		return findById(id)
-				.flatMap(planetRepository::delete);
+		return planetRepository.deletePlanet(id)
+				.name(REPOSITORY_METRICS).tag("query", "deletePlanet").metrics()
+				.flatMap(deleted -> deleted == 0 ? monoResponseStatusNotFoundException() : Mono.empty())
+				.doOnSuccess(deleted -> {
+					planetCache.evict(id);
+					planetFacetIndex.remove(id);
+					changed(id);
+				})
+				.then()
+				.name(SERVICE_METRICS).tag("method", "delete").metrics();
 	}
 
-	@Transactional
+	/**
+	 * SWAPI lookups run before the transaction starts, so no connection is held while waiting on them.
+	 * Planets with an id are updated only if they carry their current version; without one they
+	 * are inserted, which fails with 409 when the id is taken.
+	 */
 	public Flux<Planet> saveAll(@Valid List<Planet> planets) {
-		return planetRepository.saveAll(planets);
+		boolean allNew = planets.stream().allMatch(planet -> planet.getId() == null);
+		return Flux.fromIterable(planets)
+				.flatMapSequential(this::enrich, ENRICHMENT_CONCURRENCY)
+				.collectList()
+				.flatMapMany(enriched -> (allNew ? planetRepository.insertAll(enriched) : planetRepository.saveAll(enriched))
+						.name(REPOSITORY_METRICS).tag("query", allNew ? "insertAll" : "saveAll").metrics()
+						.as(transactionalOperator::transactional))
+				.onErrorMap(OptimisticLockingFailureException.class,
+						e -> new ResponseStatusException(HttpStatus.CONFLICT, "Planet was changed by another request", e))
+				.onErrorMap(DataIntegrityViolationException.class,
+						e -> new ResponseStatusException(HttpStatus.CONFLICT, "Planet already exists, send its version to update it", e))
+				.doOnNext(planet -> planetCache.evict(planet.getId()))
+				.doOnNext(planet -> planetJsonCache.evict(planet.getId()))
+				.collectList()
+				.doOnNext(planetFacetIndex::putAll)
+				.doOnNext(saved -> listingChanged())
+				.flatMapIterable(saved -> saved)
+				.name(SERVICE_METRICS).tag("method", "saveAll").metrics();
+	}
+	
+	/**
+	 * Drops the encoded bodies made stale by a write.
+	 */
+	private void changed(Integer id) {
+		planetJsonCache.evict(id);
+		listingChanged();
+	}
+
+	private void listingChanged() {
+		planetJsonCache.clearPages();
+	}
+	
+	/**
+	 * Every id is looked up in the database: the id filter of the facet index only knows the
+	 * writes of this instance, so an id it rejects may have been created by another one. Its
+	 * answer is checked against the result and its misses recorded either way.
+	 */
+	private Mono<Planet> findExisting(Integer id) {
+		boolean mightContain = planetFacetIndex.mightContain(id);
+		return planetRepository.findById(id)
+				.name(REPOSITORY_METRICS).tag("query", "findById").metrics()
+				.doOnNext(planet -> {
+					if (!mightContain) {
+						planetFacetIndex.recordFalseNegative(planet);
+					}
+				})
+				.switchIfEmpty(Mono.fromRunnable(() -> {
+					if (mightContain) {
+						planetFacetIndex.recordFalsePositive();
+					}
+				}));
+	}
+	
+	/**
+	 * New planets go through the insert batcher when it is enabled.
+	 */
+	private Mono<Planet> insert(Planet planet) {
+		if (planet.getId() == null && planetInsertBatcher.isEnabled()) {
+			return planetInsertBatcher.insert(planet);
+		}
+		return planetRepository.save(planet)
+				.name(REPOSITORY_METRICS).tag("query", "save").metrics();
+	}
+	
+	private Mono<Planet> enrich(Planet planet) {
+		return swapiCatalogue.findFilmAppearences(planet.getName())
+				.map(planet::withFilmAppearences)
+				.defaultIfEmpty(planet);
 	}
 	
 }
@@ -4,7 +4,9 @@ import org.springframework.security.core.userdetails.ReactiveUserDetailsService;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
+import com.wander.swplanet.domain.User;
 import com.wander.swplanet.repository.UserRepository;
+import com.wander.swplanet.security.AuthenticationCache;
 
 import lombok.RequiredArgsConstructor;
 import reactor.core.publisher.Mono;
@@ -14,10 +16,16 @@ import reactor.core.publisher.Mono;
 public class UserService implements ReactiveUserDetailsService {
 	
 	private final UserRepository userRepository;
+	private final AuthenticationCache authenticationCache;
 	
 	@Override
 	public Mono<UserDetails> findByUsername(String username) {
 		return userRepository.findByUsername(username)
 				.cast(UserDetails.class);
 	}
+	
+	public Mono<User> save(User user) {
+		return userRepository.save(user)
+				.doOnNext(authenticationCache::invalidate);
+	}
 }
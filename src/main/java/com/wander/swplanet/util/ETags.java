@@ -0,0 +1,103 @@
+package com.wander.swplanet.util;
+
+import java.nio.charset.StandardCharsets;
+
+import org.springframework.http.MediaType;
+import org.springframework.util.DigestUtils;
+
+import com.wander.swplanet.domain.Planet;
+
+/**
+ * Strong entity tags for planets, and parsing of the {@code If-Match} header values naming them.
+ */
+public final class ETags {
+
+	private static final char SEPARATOR = '\u001f';
+	private static final String VERSION_PREFIX = "v";
+	private static final char VARIANT_SEPARATOR = '-';
+
+	private ETags() {
+	}
+
+	/**
+	 * The tag of a planet is its version; a planet read without one is tagged by its content.
+	 */
+	public static String of(Planet planet) {
+		if (planet.getVersion() != null) {
+			return quote(VERSION_PREFIX + planet.getVersion());
+		}
+		String content = new StringBuilder()
+				.append(planet.getId()).append(SEPARATOR)
+				.append(planet.getName()).append(SEPARATOR)
+				.append(planet.getClimate()).append(SEPARATOR)
+				.append(planet.getTerrain()).append(SEPARATOR)
+				.append(planet.getFilmAppearences())
+				.toString();
+		return quote(DigestUtils.md5DigestAsHex(content.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	/**
+	 * The tag of the representation of {@code eTag} in the given encoding. JSON, the default
+	 * one, keeps the tag as it is; the others append their subtype, so a cache never answers
+	 * a request for one encoding with another.
+	 */
+	public static String variant(String eTag, MediaType mediaType) {
+		if (MediaType.APPLICATION_JSON.equalsTypeAndSubtype(mediaType)) {
+			return eTag;
+		}
+		return suffixed(eTag, mediaType.getSubtype());
+	}
+
+	/**
+	 * The tag of the representation of {@code eTag} compressed with {@code contentEncoding}:
+	 * its bytes differ from the uncompressed ones, so it keeps a strong tag of its own.
+	 */
+	public static String encoded(String eTag, String contentEncoding) {
+		return suffixed(eTag, contentEncoding);
+	}
+
+	/**
+	 * The tag {@code eTag} was made from by {@link #encoded}, or {@code eTag} itself when it
+	 * does not name a representation compressed with {@code contentEncoding}.
+	 */
+	public static String unencoded(String eTag, String contentEncoding) {
+		String suffix = VARIANT_SEPARATOR + contentEncoding + '"';
+		if (!eTag.endsWith(suffix) || eTag.length() <= suffix.length() + 1) {
+			return eTag;
+		}
+		return eTag.substring(0, eTag.length() - suffix.length()) + '"';
+	}
+
+	private static String suffixed(String eTag, String suffix) {
+		return eTag.substring(0, eTag.length() - 1) + VARIANT_SEPARATOR + suffix + '"';
+	}
+
+	public static String quote(String tag) {
+		return '"' + tag + '"';
+	}
+
+	public static boolean isWildcard(String ifMatch) {
+		return ifMatch.trim().equals("*");
+	}
+
+	/**
+	 * The planet version named by an {@code If-Match} value holding a single tag of any of its
+	 * representations, such as {@code "v3-cbor-gzip"}, or {@code null} when it names none.
+	 * Weak tags name none, as {@code If-Match} compares tags strongly.
+	 */
+	public static Long version(String ifMatch) {
+		String tag = ifMatch.trim();
+		String prefix = '"' + VERSION_PREFIX;
+		if (!tag.startsWith(prefix) || !tag.endsWith("\"") || tag.length() < prefix.length() + 2) {
+			return null;
+		}
+		String version = tag.substring(prefix.length(), tag.length() - 1);
+		int variant = version.indexOf(VARIANT_SEPARATOR);
+		try {
+			return Long.parseLong(variant < 0 ? version : version.substring(0, variant));
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+}
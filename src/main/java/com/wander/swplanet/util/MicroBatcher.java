@@ -0,0 +1,159 @@
+package com.wander.swplanet.util;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Scheduler;
+
+/**
+ * Coalesces items submitted concurrently into batches, flushed once {@code maxSize} items
+ * are waiting or {@code maxDelay} after the first of them arrived. The batch function must
+ * return one result per item, in order; each submitter gets its own. When a batch fails
+ * with an error {@code retryEach} accepts, such as a constraint one of its items broke, its
+ * items are retried one by one so every submitter sees the outcome of its own item; the
+ * batch must then have written nothing. Any other error, such as a lost connection, fails
+ * every item at once rather than sending the same load again one item at a time. Batches
+ * are always flushed on the given scheduler, never on a submitter's thread, which may
+ * belong to another caller's request. Items whose submitter cancels before their batch is
+ * flushed are left out of it.
+ */
+public class MicroBatcher<T, R> {
+
+	private final int maxSize;
+	private final Duration maxDelay;
+	private final Function<List<T>, Flux<R>> batch;
+	private final Function<T, Mono<R>> single;
+	private final Predicate<Throwable> retryEach;
+	private final Scheduler scheduler;
+	private List<Pending<T, R>> pending = new ArrayList<>();
+	private long generation;
+
+	public MicroBatcher(int maxSize, Duration maxDelay, Function<List<T>, Flux<R>> batch,
+			Function<T, Mono<R>> single, Predicate<Throwable> retryEach, Scheduler scheduler) {
+		this.maxSize = maxSize;
+		this.maxDelay = maxDelay;
+		this.batch = batch;
+		this.single = single;
+		this.retryEach = retryEach;
+		this.scheduler = scheduler;
+	}
+
+	public Mono<R> submit(T item) {
+		return Mono.create(sink -> {
+			List<Pending<T, R>> full = null;
+			long scheduled = -1;
+			Pending<T, R> entry = new Pending<>(item, sink);
+			synchronized (this) {
+				pending.add(entry);
+				if (pending.size() >= maxSize) {
+					full = take();
+				} else if (pending.size() == 1) {
+					scheduled = generation;
+				}
+			}
+			if (full != null) {
+				List<Pending<T, R>> batch = full;
+				scheduler.schedule(() -> flush(batch));
+			} else if (scheduled >= 0) {
+				long batchGeneration = scheduled;
+				scheduler.schedule(() -> flushIfWaiting(batchGeneration), maxDelay.toNanos(), TimeUnit.NANOSECONDS);
+			}
+			sink.onCancel(() -> cancel(entry));
+		});
+	}
+
+	public synchronized int waiting() {
+		return pending.size();
+	}
+
+	/**
+	 * Flushes the batch the timer was started for, unless it already filled up and left.
+	 */
+	private void flushIfWaiting(long batchGeneration) {
+		List<Pending<T, R>> waiting;
+		synchronized (this) {
+			if (generation != batchGeneration || pending.isEmpty()) {
+				return;
+			}
+			waiting = take();
+		}
+		flush(waiting);
+	}
+
+	/**
+	 * Drops a waiting item; one already taken is skipped when its batch is flushed. A batch
+	 * left empty stops its timer, so the next item starts a full delay of its own.
+	 */
+	private void cancel(Pending<T, R> entry) {
+		entry.setCancelled(true);
+		synchronized (this) {
+			if (pending.remove(entry) && pending.isEmpty()) {
+				generation++;
+			}
+		}
+	}
+
+	private List<Pending<T, R>> take() {
+		List<Pending<T, R>> taken = pending;
+		pending = new ArrayList<>();
+		generation++;
+		return taken;
+	}
+
+	private void flush(List<Pending<T, R>> taken) {
+		List<Pending<T, R>> items = taken.stream()
+				.filter(item -> !item.isCancelled())
+				.collect(Collectors.toList());
+		if (items.isEmpty()) {
+			return;
+		}
+		if (items.size() == 1) {
+			flushEach(items);
+			return;
+		}
+		batch.apply(items.stream().map(Pending::getItem).collect(Collectors.toList()))
+				.collectList()
+				.subscribe(results -> {
+					if (results.size() != items.size()) {
+						IllegalStateException e = new IllegalStateException(
+								"Batch returned " + results.size() + " results for " + items.size() + " items");
+						items.forEach(item -> item.getSink().error(e));
+						return;
+					}
+					for (int i = 0; i < items.size(); i++) {
+						items.get(i).getSink().success(results.get(i));
+					}
+				}, e -> {
+					if (retryEach.test(e)) {
+						flushEach(items);
+					} else {
+						items.forEach(item -> item.getSink().error(e));
+					}
+				});
+	}
+
+	private void flushEach(List<Pending<T, R>> items) {
+		for (Pending<T, R> item : items) {
+			MonoSink<R> sink = item.getSink();
+			single.apply(item.getItem()).subscribe(sink::success, sink::error, () -> sink.success());
+		}
+	}
+
+	@lombok.Getter
+	@lombok.RequiredArgsConstructor
+	private static class Pending<T, R> {
+		private final T item;
+		private final MonoSink<R> sink;
+		@lombok.Setter
+		private volatile boolean cancelled;
+	}
+
+}
@@ -0,0 +1,319 @@
+package com.wander.swplanet.web;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.ServerWebExchangeDecorator;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+
+import com.wander.swplanet.util.ETags;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Compresses response bodies with gzip or deflate, as the request's {@code Accept-Encoding}
+ * allows, when their content type is in the configured list. Single-buffer bodies smaller
+ * than the minimum size go out as they are; bodies of unknown size are compressed as they
+ * are written, and streamed ones ({@code application/x-ndjson}, server-sent events) are
+ * flushed after every element so clients see each one as soon as it is sent. A compressed
+ * body keeps a strong entity tag of its own, the handler's with the encoding appended
+ * ({@code "v3-gzip"}), and a client sending that tag back in {@code If-None-Match} is
+ * answered with 304 as if it had sent the handler's.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class CompressionWebFilter implements WebFilter {
+
+	public static final String METRICS = "http.server.response.compression";
+
+	private final boolean enabled;
+	private final int minResponseSize;
+	private final int level;
+	private final List<MediaType> mimeTypes;
+	private final Map<String, CompressionMetrics> metrics;
+
+	public CompressionWebFilter(MeterRegistry meterRegistry,
+			@Value("${web.compression.enabled:true}") boolean enabled,
+			@Value("${web.compression.min-response-size:2048}") int minResponseSize,
+			@Value("${web.compression.level:6}") int level,
+			@Value("${web.compression.mime-types:application/json,application/*+json,application/x-ndjson,"
+					+ "text/event-stream,text/plain,text/csv,application/cbor,application/x-jackson-smile,"
+					+ "application/x-protobuf}") List<String> mimeTypes) {
+		this.enabled = enabled;
+		this.minResponseSize = minResponseSize;
+		this.level = level;
+		this.mimeTypes = MediaType.parseMediaTypes(mimeTypes);
+		this.metrics = Stream.of(ResponseCompressor.GZIP, ResponseCompressor.DEFLATE)
+				.collect(Collectors.toMap(Function.identity(), encoding -> new CompressionMetrics(meterRegistry, encoding)));
+	}
+
+	@Override
+	public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+		if (!enabled || exchange.getRequest().getMethod() == HttpMethod.HEAD) {
+			return chain.filter(exchange);
+		}
+		HttpHeaders headers = exchange.getRequest().getHeaders();
+		String encoding = negotiate(headers.get(HttpHeaders.ACCEPT_ENCODING));
+		return chain.filter(new CompressingExchange(exchange,
+				new CompressingResponse(exchange.getResponse(), encoding, headers.getIfNoneMatch())));
+	}
+
+	/**
+	 * gzip when accepted, then deflate, or null when the client takes neither.
+	 */
+	static String negotiate(List<String> acceptEncoding) {
+		if (acceptEncoding == null) {
+			return null;
+		}
+		boolean gzip = false;
+		boolean deflate = false;
+		for (String value : acceptEncoding) {
+			for (String coding : StringUtils.tokenizeToStringArray(value, ",")) {
+				String[] parts = StringUtils.tokenizeToStringArray(coding, ";");
+				if (parts.length == 0 || rejected(parts)) {
+					continue;
+				}
+				String name = parts[0].toLowerCase();
+				gzip |= name.equals(ResponseCompressor.GZIP) || name.equals("x-gzip") || name.equals("*");
+				deflate |= name.equals(ResponseCompressor.DEFLATE);
+			}
+		}
+		return gzip ? ResponseCompressor.GZIP : deflate ? ResponseCompressor.DEFLATE : null;
+	}
+
+	private static boolean rejected(String[] parts) {
+		for (int i = 1; i < parts.length; i++) {
+			String parameter = parts[i].replace(" ", "");
+			if (parameter.startsWith("q=")) {
+				try {
+					return Double.parseDouble(parameter.substring(2)) <= 0;
+				} catch (NumberFormatException e) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	private static class CompressingExchange extends ServerWebExchangeDecorator {
+
+		private final CompressingResponse response;
+
+		CompressingExchange(ServerWebExchange delegate, CompressingResponse response) {
+			super(delegate);
+			this.response = response;
+		}
+
+		@Override
+		public ServerHttpResponse getResponse() {
+			return response;
+		}
+
+		@Override
+		public boolean checkNotModified(String etag) {
+			return super.checkNotModified(response.held(etag));
+		}
+
+		@Override
+		public boolean checkNotModified(String etag, Instant lastModified) {
+			return super.checkNotModified(response.held(etag), lastModified);
+		}
+
+	}
+
+	private class CompressingResponse extends ServerHttpResponseDecorator {
+
+		private final String encoding;
+		private final List<String> ifNoneMatch;
+
+		CompressingResponse(ServerHttpResponse delegate, String encoding, List<String> ifNoneMatch) {
+			super(delegate);
+			this.encoding = encoding;
+			this.ifNoneMatch = ifNoneMatch;
+		}
+
+		/**
+		 * The tag of the representation of {@code eTag} in this response's encoding when the
+		 * client holds it, or else {@code eTag}.
+		 */
+		String held(String eTag) {
+			if (encoding == null || eTag == null) {
+				return eTag;
+			}
+			String encoded = ETags.encoded(eTag, encoding);
+			return ifNoneMatch.stream().anyMatch(tag -> tag.endsWith(encoded)) ? encoded : eTag;
+		}
+
+		@Override
+		public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+			if (!compressible()) {
+				return super.writeWith(body);
+			}
+			long contentLength = getHeaders().getContentLength();
+			if (contentLength >= 0 && contentLength < minResponseSize) {
+				return super.writeWith(body);
+			}
+			if (body instanceof Mono) {
+				return super.writeWith(Mono.from(body).map(this::compressWhole));
+			}
+			ResponseCompressor compressor = compressing();
+			Flux<DataBuffer> compressed = Flux.<DataBuffer>from(body)
+					.map(buffer -> compress(compressor, buffer, false))
+					.filter(buffer -> buffer.readableByteCount() > 0)
+					.concatWith(Mono.fromCallable(() -> finish(compressor)))
+					.doFinally(signal -> compressor.end());
+			return super.writeWith(compressed);
+		}
+
+		/**
+		 * A 304 carries the tag the client holds, which the handler set without the encoding.
+		 */
+		@Override
+		public Mono<Void> setComplete() {
+			if (getStatusCode() == HttpStatus.NOT_MODIFIED) {
+				getHeaders().setETag(held(getHeaders().getETag()));
+			}
+			return super.setComplete();
+		}
+
+		@Override
+		public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+			if (!compressible()) {
+				return super.writeAndFlushWith(body);
+			}
+			ResponseCompressor compressor = compressing();
+			Flux<Publisher<DataBuffer>> compressed = Flux.<Publisher<? extends DataBuffer>>from(body)
+					.<Publisher<DataBuffer>>map(element -> Flux.<DataBuffer>from(element)
+							.map(buffer -> compress(compressor, buffer, true)))
+					.concatWith(Mono.fromCallable(() -> Mono.just(finish(compressor))))
+					.doFinally(signal -> compressor.end());
+			return super.writeAndFlushWith(compressed);
+		}
+
+		/**
+		 * Whether the body may be compressed at all; responses of such types vary by
+		 * {@code Accept-Encoding} even when this one goes out uncompressed.
+		 */
+		private boolean compressible() {
+			HttpHeaders headers = getHeaders();
+			MediaType contentType = headers.getContentType();
+			if (contentType == null || headers.containsKey(HttpHeaders.CONTENT_ENCODING)
+					|| mimeTypes.stream().noneMatch(type -> type.includes(contentType))) {
+				return false;
+			}
+			if (!headers.getVary().contains(HttpHeaders.ACCEPT_ENCODING)) {
+				headers.add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+			}
+			return encoding != null;
+		}
+
+		private DataBuffer compressWhole(DataBuffer buffer) {
+			if (buffer.readableByteCount() < minResponseSize) {
+				return buffer;
+			}
+			ResponseCompressor compressor = compressing();
+			try {
+				byte[] body = compressor.compress(buffer.asByteBuffer(), false);
+				byte[] end = compressor.finish();
+				DataBuffer compressed = bufferFactory().allocateBuffer(body.length + end.length).write(body).write(end);
+				getHeaders().setContentLength(compressed.readableByteCount());
+				metrics.get(encoding).record(compressor);
+				return compressed;
+			} finally {
+				compressor.end();
+				DataBufferUtils.release(buffer);
+			}
+		}
+
+		private ResponseCompressor compressing() {
+			HttpHeaders headers = getHeaders();
+			headers.remove(HttpHeaders.CONTENT_LENGTH);
+			headers.set(HttpHeaders.CONTENT_ENCODING, encoding);
+			String eTag = headers.getETag();
+			if (eTag != null) {
+				headers.setETag(ETags.encoded(eTag, encoding));
+			}
+			return new ResponseCompressor(encoding, level);
+		}
+
+		private DataBuffer compress(ResponseCompressor compressor, DataBuffer buffer, boolean flush) {
+			try {
+				return bufferFactory().wrap(compressor.compress(buffer.asByteBuffer(), flush));
+			} finally {
+				DataBufferUtils.release(buffer);
+			}
+		}
+
+		private DataBuffer finish(ResponseCompressor compressor) {
+			DataBuffer end = bufferFactory().wrap(compressor.finish());
+			metrics.get(encoding).record(compressor);
+			return end;
+		}
+
+	}
+
+	private static class CompressionMetrics {
+
+		private final DistributionSummary ratio;
+		private final DistributionSummary original;
+		private final DistributionSummary compressed;
+		private final Timer cpu;
+
+		CompressionMetrics(MeterRegistry registry, String encoding) {
+			this.ratio = DistributionSummary.builder(METRICS + ".ratio")
+					.description("Original size of a compressed response body divided by its compressed size")
+					.tag("encoding", encoding)
+					.register(registry);
+			this.original = DistributionSummary.builder(METRICS + ".original.size")
+					.description("Size of response bodies before compression")
+					.baseUnit("bytes")
+					.tag("encoding", encoding)
+					.register(registry);
+			this.compressed = DistributionSummary.builder(METRICS + ".compressed.size")
+					.description("Size of response bodies after compression")
+					.baseUnit("bytes")
+					.tag("encoding", encoding)
+					.register(registry);
+			this.cpu = Timer.builder(METRICS + ".cpu")
+					.description("CPU time spent compressing a response body")
+					.tag("encoding", encoding)
+					.register(registry);
+		}
+
+		void record(ResponseCompressor compressor) {
+			original.record(compressor.getOriginalBytes());
+			compressed.record(compressor.getCompressedBytes());
+			if (compressor.getCompressedBytes() > 0) {
+				ratio.record((double) compressor.getOriginalBytes() / compressor.getCompressedBytes());
+			}
+			cpu.record(compressor.getCpuNanos(), TimeUnit.NANOSECONDS);
+		}
+
+	}
+
+}
@@ -0,0 +1,136 @@
+package com.wander.swplanet.web;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Compresses one response body, chunk by chunk, as {@code gzip} or {@code deflate} (zlib)
+ * content coding. Not thread safe; a response body is written by one subscriber at a time.
+ * Keeps the sizes and the CPU time spent so the filter can report them once the body ends.
+ */
+class ResponseCompressor {
+
+	static final String GZIP = "gzip";
+	static final String DEFLATE = "deflate";
+
+	private static final byte[] GZIP_HEADER = { 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff };
+
+	private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+	private static final boolean CPU_TIME = THREADS.isCurrentThreadCpuTimeSupported() && THREADS.isThreadCpuTimeEnabled();
+
+	private final String encoding;
+	private final Deflater deflater;
+	private final CRC32 crc;
+	private final byte[] chunk = new byte[8192];
+	private boolean headerWritten;
+	private long originalBytes;
+	private long compressedBytes;
+	private long cpuNanos;
+
+	ResponseCompressor(String encoding, int level) {
+		boolean gzip = GZIP.equals(encoding);
+		this.encoding = encoding;
+		this.deflater = new Deflater(level, gzip);
+		this.crc = gzip ? new CRC32() : null;
+	}
+
+	/**
+	 * Compresses {@code input}. With {@code flush} everything written so far is emitted, so
+	 * a client can decode the chunk without waiting for the rest of the body; otherwise the
+	 * result may be empty.
+	 */
+	byte[] compress(ByteBuffer input, boolean flush) {
+		long start = now();
+		ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, input.remaining() / 2));
+		writeHeader(out);
+		originalBytes += input.remaining();
+		if (crc != null) {
+			crc.update(input.duplicate());
+		}
+		deflater.setInput(input);
+		while (!deflater.needsInput()) {
+			deflate(out, Deflater.NO_FLUSH);
+		}
+		if (flush) {
+			int written;
+			do {
+				written = deflate(out, Deflater.SYNC_FLUSH);
+			} while (written == chunk.length);
+		}
+		return done(out, start);
+	}
+
+	/**
+	 * Ends the stream, emitting what is left and, for gzip, the trailer.
+	 */
+	byte[] finish() {
+		long start = now();
+		ByteArrayOutputStream out = new ByteArrayOutputStream(64);
+		writeHeader(out);
+		deflater.finish();
+		while (!deflater.finished()) {
+			deflate(out, Deflater.NO_FLUSH);
+		}
+		if (crc != null) {
+			writeInt(out, (int) crc.getValue());
+			writeInt(out, (int) originalBytes);
+		}
+		return done(out, start);
+	}
+
+	void end() {
+		deflater.end();
+	}
+
+	String getEncoding() {
+		return encoding;
+	}
+
+	long getOriginalBytes() {
+		return originalBytes;
+	}
+
+	long getCompressedBytes() {
+		return compressedBytes;
+	}
+
+	long getCpuNanos() {
+		return cpuNanos;
+	}
+
+	private int deflate(ByteArrayOutputStream out, int flush) {
+		int written = deflater.deflate(chunk, 0, chunk.length, flush);
+		out.write(chunk, 0, written);
+		return written;
+	}
+
+	private void writeHeader(ByteArrayOutputStream out) {
+		if (crc != null && !headerWritten) {
+			out.write(GZIP_HEADER, 0, GZIP_HEADER.length);
+		}
+		headerWritten = true;
+	}
+
+	private byte[] done(ByteArrayOutputStream out, long start) {
+		cpuNanos += now() - start;
+		compressedBytes += out.size();
+		return out.toByteArray();
+	}
+
+	private static void writeInt(ByteArrayOutputStream out, int value) {
+		out.write(value);
+		out.write(value >>> 8);
+		out.write(value >>> 16);
+		out.write(value >>> 24);
+	}
+
+	private static long now() {
+		return CPU_TIME ? THREADS.getCurrentThreadCpuTime() : System.nanoTime();
+	}
+
+}
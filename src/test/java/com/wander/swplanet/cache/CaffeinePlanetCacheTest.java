@@ -0,0 +1,55 @@
+package com.wander.swplanet.cache;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.wander.swplanet.domain.Planet;
+import com.wander.swplanet.util.PlanetCreator;
+
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+class CaffeinePlanetCacheTest {
+
+	private final CaffeinePlanetCache planetCache = new CaffeinePlanetCache(100, Duration.ofMinutes(1));
+
+	private final Planet planet = PlanetCreator.createValidPlanet();
+
+	@Test
+	@DisplayName("get loads the planet once and serves later calls from the cache")
+	public void get_ReturnsCachedPlanet_WhenAlreadyLoaded() {
+		StepVerifier.create(planetCache.get(1, id -> Mono.just(planet)))
+			.expectNext(planet)
+			.verifyComplete();
+
+		StepVerifier.create(planetCache.get(1, id -> Mono.error(new IllegalStateException("loaded twice"))))
+			.expectNext(planet)
+			.verifyComplete();
+
+		Assertions.assertEquals(1, planetCache.stats().hitCount());
+	}
+
+	@Test
+	@DisplayName("get does not cache an empty result")
+	public void get_DoesNotCache_WhenLoaderIsEmpty() {
+		StepVerifier.create(planetCache.get(1, id -> Mono.empty()))
+			.verifyComplete();
+
+		Assertions.assertEquals(0, planetCache.estimatedSize());
+	}
+
+	@Test
+	@DisplayName("get allows a synchronous loader to write to the cache")
+	public void get_ReturnsPlanet_WhenLoaderWritesSynchronously() {
+		StepVerifier.create(planetCache.get(1, id -> {
+				planetCache.put(planet.withName("Hoth"));
+				return Mono.just(planet);
+			}))
+			.expectNext(planet)
+			.verifyComplete();
+	}
+
+}
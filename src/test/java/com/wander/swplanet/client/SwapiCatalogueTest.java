@@ -0,0 +1,195 @@
+package com.wander.swplanet.client;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.BDDMockito;
+import org.mockito.Mockito;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import com.wander.swplanet.config.SwapiConfig;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+class SwapiCatalogueTest {
+
+	private static final String PAGE_1 = "{\"count\":5,\"next\":\"2\",\"results\":["
+			+ "{\"name\":\"Tatooine\",\"films\":[\"1\",\"3\",\"4\",\"5\",\"6\"]},"
+			+ "{\"name\":\"Alderaan\",\"films\":[\"1\",\"6\"]}]}";
+
+	private static final String PAGE_2 = "{\"count\":5,\"next\":\"3\",\"results\":["
+			+ "{\"name\":\"Yavin IV\",\"films\":[\"1\"]},"
+			+ "{\"name\":\"Hoth\",\"films\":[\"2\"]}]}";
+
+	private static final String PAGE_3 = "{\"count\":5,\"next\":null,\"results\":["
+			+ "{\"name\":\"Dagobah\",\"films\":[\"2\",\"3\",\"6\"]}]}";
+
+	private MockWebServer swapi;
+
+	private WebClient webClient;
+
+	private SwapiClient swapiClientMock;
+
+	private MutableClock clock;
+
+	private volatile boolean failing;
+
+	@BeforeEach
+	public void setUp() throws IOException {
+		swapi = new MockWebServer();
+		swapi.setDispatcher(new Dispatcher() {
+			@Override
+			public MockResponse dispatch(RecordedRequest request) {
+				if (failing) {
+					return new MockResponse().setResponseCode(503);
+				}
+				switch (request.getPath()) {
+				case "/api/planets/?page=1": return json(PAGE_1);
+				case "/api/planets/?page=2": return json(PAGE_2);
+				case "/api/planets/?page=3": return json(PAGE_3);
+				default: return new MockResponse().setResponseCode(404);
+				}
+			}
+		});
+		swapi.start();
+		webClient = new SwapiConfig().swapiWebClient(WebClient.builder(), swapi.url("/api/").toString(), Duration.ofSeconds(1));
+		swapiClientMock = Mockito.mock(SwapiClient.class);
+		BDDMockito.when(swapiClientMock.findFilmAppearences(ArgumentMatchers.anyString()))
+			.thenReturn(Mono.just(42L));
+		clock = new MutableClock(Instant.parse("2021-05-04T00:00:00Z"));
+	}
+
+	@AfterEach
+	public void tearDown() throws IOException {
+		swapi.shutdown();
+	}
+
+	@Test
+	@DisplayName("findFilmAppearences answers from the mirror without calling SWAPI once refreshed")
+	public void findFilmAppearences_UsesMirror_WhenRefreshed() {
+		SwapiCatalogue catalogue = catalogue(10);
+
+		StepVerifier.create(catalogue.refresh())
+			.expectNext(5)
+			.verifyComplete();
+
+		StepVerifier.create(catalogue.findFilmAppearences(" dagobah "))
+			.expectNext(3L)
+			.verifyComplete();
+		StepVerifier.create(catalogue.findFilmAppearences("Earth"))
+			.verifyComplete();
+
+		Assertions.assertEquals(3, swapi.getRequestCount());
+		Mockito.verifyNoInteractions(swapiClientMock);
+	}
+
+	@Test
+	@DisplayName("findFilmAppearences falls back to SWAPI for planets beyond the mirrored pages")
+	public void findFilmAppearences_FallsBackToClient_WhenPlanetIsBeyondMaxPages() {
+		SwapiCatalogue catalogue = catalogue(2);
+
+		StepVerifier.create(catalogue.refresh())
+			.expectNext(4)
+			.verifyComplete();
+
+		StepVerifier.create(catalogue.findFilmAppearences("Hoth"))
+			.expectNext(1L)
+			.verifyComplete();
+		StepVerifier.create(catalogue.findFilmAppearences("Dagobah"))
+			.expectNext(42L)
+			.verifyComplete();
+
+		Assertions.assertEquals(2, swapi.getRequestCount());
+	}
+
+	@Test
+	@DisplayName("findFilmAppearences falls back to SWAPI when the mirror is older than the maximum age")
+	public void findFilmAppearences_FallsBackToClient_WhenMirrorIsStale() {
+		SwapiCatalogue catalogue = catalogue(10);
+		catalogue.refresh().block();
+
+		clock.advance(Duration.ofHours(7));
+
+		StepVerifier.create(catalogue.findFilmAppearences("Tatooine"))
+			.expectNext(42L)
+			.verifyComplete();
+		Assertions.assertEquals(7 * 3600d, catalogue.age());
+	}
+
+	@Test
+	@DisplayName("refresh keeps the previous mirror when SWAPI fails")
+	public void refresh_KeepsMirror_WhenSwapiFails() {
+		SwapiCatalogue catalogue = catalogue(10);
+		catalogue.refresh().block();
+
+		failing = true;
+		clock.advance(Duration.ofHours(1));
+
+		StepVerifier.create(catalogue.refresh())
+			.expectError()
+			.verify();
+
+		Assertions.assertEquals(5, catalogue.size());
+		StepVerifier.create(catalogue.findFilmAppearences("Tatooine"))
+			.expectNext(5L)
+			.verifyComplete();
+	}
+
+	private SwapiCatalogue catalogue(int maxPages) {
+		return new SwapiCatalogue(webClient, swapiClientMock, "planets/?page={page}", maxPages, 4,
+				Duration.ofHours(1), Duration.ofHours(6), true, clock);
+	}
+
+	private MockResponse json(String body) {
+		return new MockResponse()
+				.setHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+				.setBody(body);
+	}
+
+	private static class MutableClock extends Clock {
+
+		private Instant instant;
+
+		MutableClock(Instant instant) {
+			this.instant = instant;
+		}
+
+		void advance(Duration duration) {
+			instant = instant.plus(duration);
+		}
+
+		@Override
+		public ZoneId getZone() {
+			return ZoneOffset.UTC;
+		}
+
+		@Override
+		public Clock withZone(ZoneId zone) {
+			return this;
+		}
+
+		@Override
+		public Instant instant() {
+			return instant;
+		}
+
+	}
+
+}
@@ -0,0 +1,135 @@
+package com.wander.swplanet.client;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import com.wander.swplanet.config.SwapiConfig;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import reactor.test.StepVerifier;
+
+class SwapiClientTest {
+
+	private static final String TATOOINE = "{\"count\":2,\"next\":null,\"results\":["
+			+ "{\"name\":\"Tatooine\",\"climate\":\"arid\",\"terrain\":\"desert\",\"films\":[\"1\",\"3\",\"4\",\"5\",\"6\"]},"
+			+ "{\"name\":\"Tatooine Moon\",\"climate\":\"arid\",\"terrain\":\"desert\",\"films\":[]}]}";
+
+	private static final String NO_RESULTS = "{\"count\":0,\"next\":null,\"results\":[]}";
+
+	private MockWebServer swapi;
+
+	private CircuitBreaker circuitBreaker;
+
+	private SwapiClient swapiClient;
+
+	@BeforeEach
+	public void setUp() throws IOException {
+		swapi = new MockWebServer();
+		swapi.start();
+		WebClient webClient = new SwapiConfig()
+				.swapiWebClient(WebClient.builder(), swapi.url("/api/").toString(), Duration.ofMillis(500));
+		circuitBreaker = CircuitBreaker.of("swapi", CircuitBreakerConfig.custom()
+				.slidingWindowSize(2)
+				.minimumNumberOfCalls(2)
+				.waitDurationInOpenState(Duration.ofMinutes(1))
+				.build());
+		swapiClient = new SwapiClient(webClient, circuitBreaker, Bulkhead.ofDefaults("swapi"), "planets/?search={name}",
+				true, 100, Duration.ofMinutes(5));
+	}
+
+	@AfterEach
+	public void tearDown() throws IOException {
+		swapi.shutdown();
+	}
+
+	@Test
+	@DisplayName("findFilmAppearences counts the films of the planet whose name matches exactly")
+	public void findFilmAppearences_ReturnsFilmCount_WhenNameMatches() throws InterruptedException {
+		swapi.enqueue(json(TATOOINE));
+
+		StepVerifier.create(swapiClient.findFilmAppearences("tatooine"))
+			.expectNext(5L)
+			.verifyComplete();
+
+		Assertions.assertEquals("/api/planets/?search=tatooine", swapi.takeRequest().getPath());
+	}
+
+	@Test
+	@DisplayName("findFilmAppearences serves repeated names from the cache, including unknown planets")
+	public void findFilmAppearences_UsesCache_WhenNameRepeats() {
+		swapi.enqueue(json(TATOOINE));
+		swapi.enqueue(json(NO_RESULTS));
+
+		swapiClient.findFilmAppearences("Tatooine").block();
+		swapiClient.findFilmAppearences("Earth").block();
+
+		StepVerifier.create(swapiClient.findFilmAppearences("TATOOINE"))
+			.expectNext(5L)
+			.verifyComplete();
+		StepVerifier.create(swapiClient.findFilmAppearences("Earth"))
+			.verifyComplete();
+
+		Assertions.assertEquals(2, swapi.getRequestCount());
+	}
+
+	@Test
+	@DisplayName("findFilmAppearences completes empty and does not cache when SWAPI fails")
+	public void findFilmAppearences_ReturnsEmpty_WhenSwapiFails() {
+		swapi.enqueue(new MockResponse().setResponseCode(500));
+		swapi.enqueue(json(TATOOINE));
+
+		StepVerifier.create(swapiClient.findFilmAppearences("Tatooine"))
+			.verifyComplete();
+		StepVerifier.create(swapiClient.findFilmAppearences("Tatooine"))
+			.expectNext(5L)
+			.verifyComplete();
+	}
+
+	@Test
+	@DisplayName("findFilmAppearences completes empty when SWAPI does not answer in time")
+	public void findFilmAppearences_ReturnsEmpty_WhenSwapiIsSlow() {
+		swapi.enqueue(json(TATOOINE).setHeadersDelay(2, TimeUnit.SECONDS));
+
+		StepVerifier.create(swapiClient.findFilmAppearences("Tatooine"))
+			.expectComplete()
+			.verify(Duration.ofSeconds(1));
+	}
+
+	@Test
+	@DisplayName("findFilmAppearences stops calling SWAPI once the circuit is open")
+	public void findFilmAppearences_SkipsSwapi_WhenCircuitIsOpen() {
+		swapi.enqueue(new MockResponse().setResponseCode(503));
+		swapi.enqueue(new MockResponse().setResponseCode(503));
+		swapi.enqueue(json(TATOOINE));
+
+		swapiClient.findFilmAppearences("Tatooine").block();
+		swapiClient.findFilmAppearences("Tatooine").block();
+
+		StepVerifier.create(swapiClient.findFilmAppearences("Tatooine"))
+			.verifyComplete();
+
+		Assertions.assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+		Assertions.assertEquals(2, swapi.getRequestCount());
+	}
+
+	private MockResponse json(String body) {
+		return new MockResponse()
+				.setHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+				.setBody(body);
+	}
+
+}
@@ -0,0 +1,98 @@
+package com.wander.swplanet.codec;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+
+import com.google.protobuf.CodedOutputStream;
+import com.wander.swplanet.domain.Planet;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+class PlanetProtobufCodecTest {
+
+	private static final ResolvableType PLANET = ResolvableType.forClass(Planet.class);
+	private static final ResolvableType PLANET_LIST = ResolvableType.forClassWithGenerics(List.class, Planet.class);
+
+	private final PlanetProtobufEncoder encoder = new PlanetProtobufEncoder();
+
+	private final PlanetProtobufDecoder decoder = new PlanetProtobufDecoder();
+
+	private final Planet tatooine = new Planet(1, "Tatooine", "arid", "desert", 5L, 2L);
+
+	private final Planet hoth = new Planet(null, "Hoth", null, "tundra", null, null);
+
+	@Test
+	@DisplayName("decode reads back a planet and a list of planets, leaving absent fields null")
+	public void decode_ReturnsEncodedPlanets_WhenRoundTripped() {
+		StepVerifier.create(decoder.decodeToMono(encode(Mono.just(hoth), PLANET), PLANET,
+				PlanetMediaTypes.APPLICATION_PROTOBUF, Map.of()))
+			.expectNext(hoth)
+			.verifyComplete();
+
+		StepVerifier.create(decoder.decodeToMono(encode(Mono.just(List.of(tatooine, hoth)), PLANET_LIST), PLANET_LIST,
+				PlanetMediaTypes.APPLICATION_PROTOBUF, Map.of()))
+			.expectNext(List.of(tatooine, hoth))
+			.verifyComplete();
+	}
+
+	@Test
+	@DisplayName("encode writes a flux of planets with the same bytes as the list")
+	public void encode_WritesPlanetList_WhenGivenFlux() {
+		byte[] streamed = bytes(encode(Flux.just(tatooine, hoth), PLANET));
+
+		Assertions.assertArrayEquals(PlanetProtobuf.encode(List.of(tatooine, hoth)), streamed);
+		StepVerifier.create(decoder.decode(Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(streamed)), PLANET,
+				PlanetMediaTypes.APPLICATION_PROTOBUF, Map.of()))
+			.expectNext(tatooine, hoth)
+			.verifyComplete();
+	}
+
+	@Test
+	@DisplayName("decodePlanet skips fields it does not know")
+	public void decodePlanet_SkipsUnknownFields_WhenPresent() throws Exception {
+		byte[] known = PlanetProtobuf.encode(tatooine);
+		byte[] message = new byte[known.length + 32];
+		CodedOutputStream out = CodedOutputStream.newInstance(message);
+		out.writeString(42, "from a newer schema");
+		out.writeRawBytes(known);
+
+		Planet decoded = PlanetProtobuf.decodePlanet(ByteBuffer.wrap(message, 0, out.getTotalBytesWritten()));
+
+		Assertions.assertEquals(tatooine, decoded);
+	}
+
+	@Test
+	@DisplayName("canEncode accepts planets and collections of planets only")
+	public void canEncode_AcceptsPlanetTypes_WhenProtobufIsRequested() {
+		Assertions.assertTrue(encoder.canEncode(PLANET, PlanetMediaTypes.APPLICATION_PROTOBUF));
+		Assertions.assertTrue(encoder.canEncode(PLANET_LIST, PlanetMediaTypes.APPLICATION_PROTOBUF));
+		Assertions.assertFalse(encoder.canEncode(ResolvableType.forClassWithGenerics(List.class, String.class),
+				PlanetMediaTypes.APPLICATION_PROTOBUF));
+		Assertions.assertFalse(encoder.canEncode(PLANET, PlanetMediaTypes.APPLICATION_SMILE));
+	}
+
+	private Flux<DataBuffer> encode(Publisher<?> input, ResolvableType elementType) {
+		return encoder.encode(input, DefaultDataBufferFactory.sharedInstance,
+				elementType, PlanetMediaTypes.APPLICATION_PROTOBUF, Map.of());
+	}
+
+	private byte[] bytes(Flux<DataBuffer> buffers) {
+		DataBuffer joined = DataBufferUtils.join(buffers).block();
+		byte[] bytes = new byte[joined.readableByteCount()];
+		joined.read(bytes);
+		return bytes;
+	}
+
+}
@@ -1,6 +1,12 @@
 package com.wander.swplanet.controller;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.FutureTask;
 
 import org.junit.jupiter.api.Assertions;
@@ -13,12 +19,39 @@ import org.mockito.ArgumentMatchers;
 import org.mockito.BDDMockito;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.Spy;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.AbstractListenerReadPublisher;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.server.ResponseStatusException;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wander.swplanet.cache.PlanetJsonCache;
+import com.wander.swplanet.codec.PlanetMediaTypes;
+import com.wander.swplanet.codec.PlanetProtobuf;
+import com.wander.swplanet.config.CodecConfig;
+import com.wander.swplanet.domain.ImportReport;
 import com.wander.swplanet.domain.Planet;
+import com.wander.swplanet.domain.PlanetFacets;
+import com.wander.swplanet.domain.PlanetPage;
+import com.wander.swplanet.service.PlanetExporter;
+import com.wander.swplanet.service.PlanetImporter;
 import com.wander.swplanet.service.PlanetService;
+import com.wander.swplanet.util.ETags;
 import com.wander.swplanet.util.PlanetCreator;
+import com.wander.swplanet.web.CompressionWebFilter;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import reactor.blockhound.BlockHound;
 import reactor.blockhound.BlockingOperationError;
 import reactor.core.publisher.Flux;
@@ -35,6 +68,19 @@ class PlanetControllerTest {
 	@Mock
 	private PlanetService planetServiceMock;
 	
+	@Mock
+	private PlanetImporter planetImporterMock;
+	
+	@Mock
+	private PlanetExporter planetExporterMock;
+	
+	@Spy
+	private PlanetJsonCache planetJsonCache = new PlanetJsonCache(OBJECT_MAPPER, 100, 16, 65536, Duration.ofMinutes(10));
+	
+	private static final String LISTING_ETAG = "\"17-0-0-100\"";
+	
+	private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+	
 	private final Planet planetValid = PlanetCreator.createValidPlanet();
 	
 	@BeforeAll
@@ -44,7 +90,10 @@ class PlanetControllerTest {
 	
 	@BeforeEach
 	public void setUp() {
-		BDDMockito.when(planetServiceMock.findAll())
+		BDDMockito.when(planetServiceMock.findPage(ArgumentMatchers.anyInt(), ArgumentMatchers.anyInt()))
+			.thenReturn(Mono.just(new PlanetPage(List.of(planetValid), null)));
+		
+		BDDMockito.when(planetServiceMock.stream(ArgumentMatchers.anyInt()))
 			.thenReturn(Flux.just(planetValid));
 		
 		BDDMockito.when(planetServiceMock.findById(ArgumentMatchers.anyInt()))
@@ -60,8 +109,11 @@ class PlanetControllerTest {
 		BDDMockito.when(planetServiceMock.delete(ArgumentMatchers.anyInt())).
 			thenReturn(Mono.empty());
 		
-		BDDMockito.when(planetServiceMock.update(PlanetCreator.createValidUpdatedPlanet()))
-			.thenReturn(Mono.empty());
+		BDDMockito.when(planetServiceMock.update(PlanetCreator.createValidUpdatedPlanet(), null))
+			.thenReturn(Mono.just(PlanetCreator.createValidUpdatedPlanet().withVersion(4L)));
+		
+		BDDMockito.when(planetServiceMock.listingETag(ArgumentMatchers.anyInt(), ArgumentMatchers.anyInt()))
+			.thenReturn(Mono.just(LISTING_ETAG));
 	}
 	
 	@Test
@@ -80,21 +132,258 @@ class PlanetControllerTest {
 	@Test
 	@DisplayName("listAll returns a flux of planet")
 	public void listAll_ReturnFluxOfPlanet_WhenSuccesful() {
-		StepVerifier.create(planetController.listAll())
+		StepVerifier.create(planetController.listAll(0, 100, exchange()))
+			.expectSubscription()
+			.assertNext(response -> {
+				Assertions.assertEquals(List.of(planetValid), decode((byte[]) response.getBody(), new TypeReference<List<Planet>>() {}));
+				Assertions.assertFalse(response.getHeaders().containsKey(HttpHeaders.LINK));
+				Assertions.assertEquals(LISTING_ETAG, response.getHeaders().getETag());
+			})
+			.verifyComplete();
+	}
+	
+	@Test
+	@DisplayName("listAll returns not modified without querying when the listing has not changed")
+	public void listAll_ReturnsNotModified_WhenETagMatches() {
+		MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/planets")
+				.ifNoneMatch(LISTING_ETAG));
+		
+		StepVerifier.create(planetController.listAll(0, 100, exchange))
+			.expectSubscription()
+			.assertNext(response -> {
+				Assertions.assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+				Assertions.assertNull(response.getBody());
+			})
+			.verifyComplete();
+		
+		Mockito.verify(planetServiceMock, Mockito.never()).findPage(ArgumentMatchers.anyInt(), ArgumentMatchers.anyInt());
+	}
+	
+	@Test
+	@DisplayName("listAll returns a link to the next page when there are more planets")
+	public void listAll_ReturnsNextLink_WhenPageIsFull() {
+		BDDMockito.when(planetServiceMock.findPage(ArgumentMatchers.anyInt(), ArgumentMatchers.anyInt()))
+			.thenReturn(Mono.just(new PlanetPage(List.of(planetValid), planetValid.getId())));
+		
+		StepVerifier.create(planetController.listAll(0, 1, exchange()))
+			.expectSubscription()
+			.assertNext(response -> Assertions.assertEquals("</planets?after=1&limit=1>; rel=\"next\"",
+					response.getHeaders().getFirst(HttpHeaders.LINK)))
+			.verifyComplete();
+	}
+	
+	@Test
+	@DisplayName("streamAll returns a flux of planet")
+	public void streamAll_ReturnFluxOfPlanet_WhenSuccesful() {
+		StepVerifier.create(planetController.streamAll(0))
 			.expectSubscription()
 			.expectNext(planetValid)
 			.verifyComplete();
 	}
 	
+	@Test
+	@DisplayName("search returns a flux of the planets matching the filters")
+	public void search_ReturnFluxOfPlanet_WhenSuccesful() {
+		BDDMockito.when(planetServiceMock.search("Tat", null, "desert", 0, 100))
+			.thenReturn(Flux.just(planetValid));
+		
+		StepVerifier.create(planetController.search("Tat", null, "desert", 0, 100))
+			.expectSubscription()
+			.expectNext(planetValid)
+			.verifyComplete();
+	}
+	
+	@Test
+	@DisplayName("findFacets matches any of the tokens when requested")
+	public void findFacets_ReturnsFacets_WhenMatchIsAny() {
+		PlanetFacets facets = new PlanetFacets(1, Map.of(), List.of(planetValid), null);
+		BDDMockito.when(planetServiceMock.findFacets(List.of("arid", "temperate"), null, false, 0, 100))
+			.thenReturn(Mono.just(facets));
+		
+		StepVerifier.create(planetController.findFacets(List.of("arid", "temperate"), null, "any", 0, 100))
+			.expectSubscription()
+			.expectNext(facets)
+			.verifyComplete();
+	}
+	
+	@Test
+	@DisplayName("streamEvents resumes after the Last-Event-ID and tags events with the planet id")
+	public void streamEvents_ResumesAfterLastEventId_WhenHeaderIsPresent() {
+		StepVerifier.create(planetController.streamEvents(7, 0))
+			.expectSubscription()
+			.assertNext(event -> {
+				Assertions.assertEquals("1", event.id());
+				Assertions.assertEquals(planetValid, event.data());
+			})
+			.verifyComplete();
+		
+		Mockito.verify(planetServiceMock).stream(7);
+	}
+	
 	@Test
 	@DisplayName("findById returns mono with planet when exists")
 	public void findById_ReturnMonoPlanet_WhenSuccessful() {
-		StepVerifier.create(planetController.findById(1))
+		StepVerifier.create(planetController.findById(1, exchange()))
 			.expectSubscription()
-			.expectNext(planetValid)
+			.assertNext(response -> {
+				Assertions.assertEquals(planetValid, decode((byte[]) response.getBody(), new TypeReference<Planet>() {}));
+				Assertions.assertEquals(ETags.of(planetValid), response.getHeaders().getETag());
+			})
 			.verifyComplete();
 	}
 	
+	@Test
+	@DisplayName("listAll writes the cached page without querying while the listing is unchanged")
+	public void listAll_ReturnsCachedPage_WhenListingIsUnchanged() {
+		byte[] first = (byte[]) planetController.listAll(0, 100, exchange()).block().getBody();
+		byte[] second = (byte[]) planetController.listAll(0, 100, exchange()).block().getBody();
+		
+		Assertions.assertSame(first, second);
+		Mockito.verify(planetServiceMock, Mockito.times(1)).findPage(0, 100);
+	}
+	
+	@Test
+	@DisplayName("findById reuses the encoded planet until the planet changes")
+	public void findById_ReusesEncodedPlanet_WhenPlanetIsUnchanged() {
+		byte[] first = (byte[]) planetController.findById(1, exchange()).block().getBody();
+		byte[] second = (byte[]) planetController.findById(1, exchange()).block().getBody();
+		BDDMockito.when(planetServiceMock.findById(ArgumentMatchers.anyInt()))
+			.thenReturn(Mono.just(planetValid.withName("Mars")));
+		byte[] changed = (byte[]) planetController.findById(1, exchange()).block().getBody();
+		
+		Assertions.assertSame(first, second);
+		Assertions.assertEquals("Mars", decode(changed, new TypeReference<Planet>() {}).getName());
+	}
+	
+	@Test
+	@DisplayName("findById and listAll answer not modified to a client holding the compressed representation")
+	public void findById_ReturnsNotModified_WhenCompressedETagMatches() {
+		WebTestClient client = WebTestClient.bindToController(planetController)
+				.webFilter(new CompressionWebFilter(new SimpleMeterRegistry(), true, 0, 6, List.of("application/json")))
+				.build();
+		String eTag = ETags.encoded(ETags.of(planetValid), "gzip");
+		
+		client.get().uri("/planets/1")
+				.header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+				.exchange()
+				.expectStatus().isOk()
+				.expectHeader().valueEquals(HttpHeaders.CONTENT_ENCODING, "gzip")
+				.expectHeader().valueEquals(HttpHeaders.ETAG, eTag);
+		
+		client.get().uri("/planets/1")
+				.header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+				.ifNoneMatch(eTag)
+				.exchange()
+				.expectStatus().isNotModified()
+				.expectHeader().valueEquals(HttpHeaders.ETAG, eTag);
+		
+		client.get().uri("/planets/1")
+				.header(HttpHeaders.ACCEPT_ENCODING, "deflate")
+				.ifNoneMatch(eTag)
+				.exchange()
+				.expectStatus().isOk()
+				.expectHeader().valueEquals(HttpHeaders.ETAG, ETags.encoded(ETags.of(planetValid), "deflate"));
+		
+		client.get().uri("/planets")
+				.header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+				.ifNoneMatch(ETags.encoded(LISTING_ETAG, "gzip"))
+				.exchange()
+				.expectStatus().isNotModified()
+				.expectHeader().valueEquals(HttpHeaders.ETAG, ETags.encoded(LISTING_ETAG, "gzip"));
+	}
+	
+	@Test
+	@DisplayName("findById and listAll write planets in the binary encoding asked for, tagged apart from JSON")
+	public void findById_WritesBinaryEncoding_WhenAccepted() {
+		WebTestClient client = WebTestClient.bindToController(planetController)
+				.httpMessageCodecs(new CodecConfig().binaryCodecCustomizer()::customize)
+				.build();
+		
+		byte[] planet = client.get().uri("/planets/1")
+				.accept(PlanetMediaTypes.APPLICATION_PROTOBUF)
+				.exchange()
+				.expectStatus().isOk()
+				.expectHeader().contentType(PlanetMediaTypes.APPLICATION_PROTOBUF)
+				.expectHeader().valueEquals(HttpHeaders.ETAG,
+						ETags.variant(ETags.of(planetValid), PlanetMediaTypes.APPLICATION_PROTOBUF))
+				.expectHeader().valueEquals(HttpHeaders.VARY, HttpHeaders.ACCEPT)
+				.expectBody(byte[].class).returnResult().getResponseBody();
+		Assertions.assertEquals(planetValid, PlanetProtobuf.decodePlanet(ByteBuffer.wrap(planet)));
+		
+		client.get().uri("/planets")
+				.accept(MediaType.APPLICATION_CBOR)
+				.exchange()
+				.expectStatus().isOk()
+				.expectHeader().contentType(MediaType.APPLICATION_CBOR)
+				.expectHeader().valueEquals(HttpHeaders.ETAG, "\"17-0-0-100-cbor\"")
+				.expectHeader().valueEquals(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+		
+		client.get().uri("/planets")
+				.accept(MediaType.APPLICATION_CBOR)
+				.ifNoneMatch(LISTING_ETAG)
+				.exchange()
+				.expectStatus().isOk();
+		
+		client.get().uri("/planets/1")
+				.exchange()
+				.expectHeader().contentType(MediaType.APPLICATION_JSON)
+				.expectHeader().valueEquals(HttpHeaders.ETAG, ETags.of(planetValid))
+				.expectHeader().valueEquals(HttpHeaders.VARY, HttpHeaders.ACCEPT)
+				.expectBody(Planet.class).isEqualTo(planetValid);
+	}
+	
+	@Test
+	@DisplayName("importPlanets answers with the final report, or every report when NDJSON is accepted")
+	public void importPlanets_ReturnsReports_WhenBodyIsStreamed() {
+		ImportReport progress = new ImportReport(500, 0, List.of(), false);
+		ImportReport done = new ImportReport(700, 1, List.of(new ImportReport.Rejection(3, "name: must not be null")), true);
+		BDDMockito.when(planetImporterMock.importPlanets(ArgumentMatchers.any(), ArgumentMatchers.eq(PlanetMediaTypes.TEXT_CSV)))
+			.thenReturn(Flux.just(progress, done));
+		WebTestClient client = WebTestClient.bindToController(planetController).build();
+		
+		client.post().uri("/planets/import")
+				.contentType(PlanetMediaTypes.TEXT_CSV)
+				.bodyValue("name\nTatooine\n")
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody()
+				.jsonPath("$.accepted").isEqualTo(700)
+				.jsonPath("$.rejections[0].line").isEqualTo(3)
+				.jsonPath("$.complete").isEqualTo(true);
+		
+		client.post().uri("/planets/import")
+				.contentType(PlanetMediaTypes.TEXT_CSV)
+				.accept(MediaType.APPLICATION_NDJSON)
+				.bodyValue("name\nTatooine\n")
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody(String.class).isEqualTo(json(progress) + "\n" + json(done) + "\n");
+	}
+	
+	@Test
+	@DisplayName("export streams the table as CSV or NDJSON as an attachment")
+	public void export_StreamsTable_WhenFormatIsAccepted() {
+		BDDMockito.when(planetExporterMock.exportCsv(ArgumentMatchers.any()))
+			.thenReturn(Flux.just(DefaultDataBufferFactory.sharedInstance.wrap("id,name\n1,Tatooine\n".getBytes())));
+		BDDMockito.when(planetExporterMock.exportNdjson(ArgumentMatchers.any()))
+			.thenReturn(Flux.just(DefaultDataBufferFactory.sharedInstance.wrap("{\"id\":1}\n".getBytes())));
+		WebTestClient client = WebTestClient.bindToController(planetController).build();
+		
+		client.get().uri("/planets/export")
+				.accept(PlanetMediaTypes.TEXT_CSV)
+				.exchange()
+				.expectStatus().isOk()
+				.expectHeader().valueEquals(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=planets.csv")
+				.expectBody(String.class).isEqualTo("id,name\n1,Tatooine\n");
+		
+		client.get().uri("/planets/export")
+				.accept(MediaType.APPLICATION_NDJSON)
+				.exchange()
+				.expectStatus().isOk()
+				.expectHeader().contentType(MediaType.APPLICATION_NDJSON)
+				.expectBody(String.class).isEqualTo("{\"id\":1}\n");
+	}
+	
 	@Test
 	@DisplayName("save creates a planet when successful")
 	public void save_CreatesPlanet_WhenSuccessful() {
@@ -106,6 +395,20 @@ class PlanetControllerTest {
 			.verifyComplete();
 	}
 	
+	@Test
+	@DisplayName("save reads a request body whose end is signalled while its data is still being read")
+	public void save_CreatesPlanet_WhenBodyEndsDuringRead() {
+		WebTestClient client = WebTestClient.bindToController(planetController).build();
+		byte[] body = json(PlanetCreator.createPlanetToBeSaved()).getBytes(StandardCharsets.UTF_8);
+		
+		client.post().uri("/planets")
+				.contentType(MediaType.APPLICATION_JSON)
+				.body(BodyInserters.fromDataBuffers(new EndDuringReadBody(body)))
+				.exchange()
+				.expectStatus().isCreated()
+				.expectBody(Planet.class).isEqualTo(planetValid);
+	}
+	
 	@Test
 	@DisplayName("saveBatch creates a list of planet when successful")
 	public void saveBatch_CreatesListPlanet_WhenSuccessful() {
@@ -128,9 +431,85 @@ class PlanetControllerTest {
 	@Test
 	@DisplayName("update save updated planet and return mono when successful")
 	public void update_SaveUpdatedPlanet_WhenSuccessful() {
-		StepVerifier.create(planetController.update(1, PlanetCreator.createValidUpdatedPlanet()))
+		StepVerifier.create(planetController.update(1, PlanetCreator.createValidUpdatedPlanet(), null))
 			.expectSubscription()
+			.assertNext(response -> {
+				Assertions.assertEquals(HttpStatus.NO_CONTENT, response.getStatusCode());
+				Assertions.assertEquals("\"v4\"", response.getHeaders().getETag());
+			})
 			.verifyComplete();
 	}
 	
+	@Test
+	@DisplayName("update returns mono error when the planet no longer matches If-Match")
+	public void update_ReturnMonoError_WhenPreconditionFails() {
+		BDDMockito.when(planetServiceMock.update(PlanetCreator.createValidUpdatedPlanet(), "\"stale\""))
+			.thenReturn(Mono.error(new ResponseStatusException(HttpStatus.PRECONDITION_FAILED)));
+		
+		StepVerifier.create(planetController.update(1, PlanetCreator.createValidUpdatedPlanet(), "\"stale\""))
+			.expectSubscription()
+			.expectError(ResponseStatusException.class)
+			.verify();
+	}
+	
+	/**
+	 * A servlet request body whose end is signalled by the container while its only chunk
+	 * is being read. Spring Framework before 5.3.7 completed the body there and dropped the
+	 * chunk, so the request failed with 400 "Request body is missing".
+	 */
+	private static class EndDuringReadBody extends AbstractListenerReadPublisher<DataBuffer> {
+		
+		private final byte[] body;
+		private boolean read;
+		
+		EndDuringReadBody(byte[] body) {
+			super("");
+			this.body = body;
+		}
+		
+		@Override
+		protected void checkOnDataAvailable() {
+			onDataAvailable();
+		}
+		
+		@Override
+		protected DataBuffer read() {
+			if (read) {
+				return null;
+			}
+			read = true;
+			onAllDataRead();
+			return DefaultDataBufferFactory.sharedInstance.wrap(body);
+		}
+		
+		@Override
+		protected void readingPaused() {
+		}
+		
+		@Override
+		protected void discardData() {
+		}
+		
+	}
+	
+	private MockServerWebExchange exchange() {
+		return MockServerWebExchange.from(MockServerHttpRequest.get("/planets"));
+	}
+	
+	private static <T> T decode(byte[] json, TypeReference<T> type) {
+		try {
+			return OBJECT_MAPPER.readValue(json, type);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+	
+	private static String json(Object value) {
+		try {
+			return OBJECT_MAPPER.writeValueAsString(value);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+	
 }
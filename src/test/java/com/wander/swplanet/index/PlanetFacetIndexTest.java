@@ -0,0 +1,224 @@
+package com.wander.swplanet.index;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.BDDMockito;
+import org.mockito.Mockito;
+
+import com.wander.swplanet.domain.Planet;
+import com.wander.swplanet.repository.PlanetRepository;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+class PlanetFacetIndexTest {
+
+	private final Planet tatooine = new Planet(1, "Tatooine", "arid", "desert", 5L, 0L);
+	private final Planet alderaan = new Planet(2, "Alderaan", "temperate", "grasslands, mountains", 2L, 0L);
+	private final Planet naboo = new Planet(3, "Naboo", "Temperate", "grassy hills, swamps, forests, mountains", 4L, 0L);
+	private final Planet bespin = new Planet(4, "Bespin", "temperate", "gas giant", 1L, 0L);
+
+	private PlanetRepository planetRepositoryMock;
+
+	private PlanetFacetIndex planetFacetIndex;
+
+	@BeforeEach
+	public void setUp() {
+		planetRepositoryMock = Mockito.mock(PlanetRepository.class);
+		givenPlanets(List.of(tatooine, alderaan, naboo, bespin));
+		planetFacetIndex = new PlanetFacetIndex(planetRepositoryMock, Duration.ofMinutes(10));
+	}
+
+	@Test
+	@DisplayName("rebuild indexes every planet and marks the index ready")
+	public void rebuild_IndexesEveryPlanet_WhenSuccessful() {
+		Assertions.assertFalse(planetFacetIndex.isReady());
+
+		StepVerifier.create(planetFacetIndex.rebuild())
+			.expectNext(4)
+			.verifyComplete();
+
+		Assertions.assertTrue(planetFacetIndex.isReady());
+		Assertions.assertEquals(4, planetFacetIndex.size());
+	}
+
+	@Test
+	@DisplayName("rebuild reads the table a page at a time, each page after the last id of the previous one")
+	public void rebuild_ReadsEveryPage_WhenTableIsLarge() {
+		givenPlanets(IntStream.rangeClosed(1, 2500)
+				.mapToObj(id -> new Planet(id, "Planet " + id, id % 2 == 0 ? "arid" : "frozen", "desert", 1L, 0L))
+				.collect(Collectors.toList()));
+
+		StepVerifier.create(planetFacetIndex.rebuild())
+			.expectNext(2500)
+			.verifyComplete();
+
+		Assertions.assertEquals(1250, planetFacetIndex.match(List.of("arid"), null, true, 0, 10).getTotal());
+		Mockito.verify(planetRepositoryMock).findPage(ArgumentMatchers.eq(1000), ArgumentMatchers.anyInt());
+		Mockito.verify(planetRepositoryMock).findPage(ArgumentMatchers.eq(2000), ArgumentMatchers.anyInt());
+		Mockito.verify(planetRepositoryMock, Mockito.never()).findAll();
+	}
+
+	@Test
+	@DisplayName("match combines tokens with AND or OR and counts tokens among the matches")
+	public void match_ReturnsMatchingIdsAndCounts_WhenFiltered() {
+		planetFacetIndex.rebuild().block();
+
+		PlanetFacetIndex.Match all = planetFacetIndex.match(List.of("temperate"), List.of("mountains", "grasslands"),
+				true, 0, 10);
+		Assertions.assertEquals(List.of(2), all.getIds());
+		Assertions.assertEquals(Map.of("temperate", 1), all.getCounts().get(PlanetFacetIndex.CLIMATE));
+
+		PlanetFacetIndex.Match any = planetFacetIndex.match(List.of("temperate"), List.of("mountains", "gas giant"),
+				false, 0, 10);
+		Assertions.assertEquals(3, any.getTotal());
+		Assertions.assertEquals(List.of(2, 3, 4), any.getIds());
+		Assertions.assertEquals(2, any.getCounts().get(PlanetFacetIndex.TERRAIN).get("mountains"));
+		Assertions.assertNull(any.getNext());
+	}
+
+	@Test
+	@DisplayName("match pages from the cursor and reports the next one")
+	public void match_ReturnsNextCursor_WhenMoreMatchesExist() {
+		planetFacetIndex.rebuild().block();
+
+		PlanetFacetIndex.Match page = planetFacetIndex.match(null, null, true, 1, 2);
+
+		Assertions.assertEquals(4, page.getTotal());
+		Assertions.assertEquals(List.of(2, 3), page.getIds());
+		Assertions.assertEquals(3, page.getNext());
+	}
+
+	@Test
+	@DisplayName("put and remove replace the tokens of a planet")
+	public void put_ReplacesTokens_WhenPlanetChanges() {
+		planetFacetIndex.rebuild().block();
+
+		planetFacetIndex.put(tatooine.withClimate("arid, hot"));
+		planetFacetIndex.remove(4);
+
+		Assertions.assertEquals(List.of(1), planetFacetIndex.match(List.of("hot"), null, true, 0, 10).getIds());
+		Assertions.assertEquals(List.of(2, 3),
+				planetFacetIndex.match(List.of("temperate"), null, true, 0, 10).getIds());
+		Assertions.assertEquals(3, planetFacetIndex.size());
+	}
+
+	@Test
+	@DisplayName("putAll indexes a batch of new and changed planets without touching earlier matches")
+	public void putAll_IndexesEveryPlanet_WhenBatchIsWritten() {
+		planetFacetIndex.rebuild().block();
+		PlanetFacetIndex.Match before = planetFacetIndex.match(List.of("temperate"), null, true, 0, 10);
+
+		planetFacetIndex.putAll(List.of(new Planet(5, "Kamino", "temperate", "ocean", 1L, 0L),
+				new Planet(6, "Dagobah", "murky", "swamp, jungles", 3L, 0L),
+				alderaan.withClimate("arid")));
+
+		Assertions.assertEquals(List.of(3, 4, 5),
+				planetFacetIndex.match(List.of("temperate"), null, true, 0, 10).getIds());
+		Assertions.assertEquals(List.of(1, 2), planetFacetIndex.match(List.of("arid"), null, true, 0, 10).getIds());
+		Assertions.assertEquals(List.of(3, 6), planetFacetIndex.match(null, List.of("swamp", "swamps"), false, 0, 10).getIds());
+		Assertions.assertEquals(6, planetFacetIndex.size());
+		Assertions.assertEquals(List.of(2, 3, 4), before.getIds());
+	}
+
+	@Test
+	@DisplayName("put and remove of the same planet in one batch leave no token behind")
+	public void putAll_DropsReplacedTokens_WhenPlanetChangesTwiceInBatch() {
+		planetFacetIndex.rebuild().block();
+
+		planetFacetIndex.putAll(List.of(bespin.withClimate("stormy"), bespin.withClimate("windy")));
+
+		Assertions.assertEquals(List.of(), planetFacetIndex.match(List.of("stormy"), null, true, 0, 10).getIds());
+		Assertions.assertEquals(List.of(4), planetFacetIndex.match(List.of("windy"), null, true, 0, 10).getIds());
+		Assertions.assertEquals(List.of(2, 3), planetFacetIndex.match(List.of("temperate"), null, true, 0, 10).getIds());
+	}
+
+	@Test
+	@DisplayName("rebuild replays the writes made while it was reading planets")
+	public void rebuild_KeepsConcurrentWrites_WhenPlanetsChangeDuringRebuild() {
+		Sinks.Many<Planet> planets = Sinks.many().unicast().onBackpressureBuffer();
+		BDDMockito.when(planetRepositoryMock.findPage(ArgumentMatchers.eq(0), ArgumentMatchers.anyInt()))
+			.thenReturn(planets.asFlux());
+
+		StepVerifier.create(planetFacetIndex.rebuild())
+			.then(() -> {
+				planets.tryEmitNext(tatooine);
+				planets.tryEmitNext(alderaan);
+				planetFacetIndex.remove(1);
+				planetFacetIndex.put(bespin);
+				planets.tryEmitComplete();
+			})
+			.expectNext(2)
+			.verifyComplete();
+
+		Assertions.assertEquals(List.of(2, 4), planetFacetIndex.match(null, null, true, 0, 10).getIds());
+	}
+
+	@Test
+	@DisplayName("mightContain rejects missing ids up to the highest one read by the rebuild and reports the false positive rate")
+	public void mightContain_RejectsMissingIds_WhenIndexIsReady() {
+		Assertions.assertTrue(planetFacetIndex.mightContain(42));
+
+		planetFacetIndex.rebuild().block();
+		planetFacetIndex.remove(2);
+		planetFacetIndex.put(new Planet(7, "Kamino", "temperate", "ocean", 1L, 0L));
+
+		Assertions.assertTrue(planetFacetIndex.mightContain(1));
+		Assertions.assertFalse(planetFacetIndex.mightContain(2));
+		Assertions.assertTrue(planetFacetIndex.mightContain(5));
+		Assertions.assertEquals(1, planetFacetIndex.getPassedLookups());
+		Assertions.assertEquals(1, planetFacetIndex.getRejectedLookups());
+
+		planetFacetIndex.recordFalsePositive();
+
+		Assertions.assertEquals(0.5, planetFacetIndex.falsePositiveRate());
+		Assertions.assertTrue(planetFacetIndex.idFilterSizeInBytes() > 0);
+	}
+
+	@Test
+	@DisplayName("rebuild moves the id filter up to the planets created by other writers")
+	public void mightContain_RejectsIdsBelowNewHighWaterMark_WhenRebuilt() {
+		planetFacetIndex.rebuild().block();
+		Assertions.assertTrue(planetFacetIndex.mightContain(6));
+
+		givenPlanets(List.of(tatooine, alderaan, naboo, bespin, new Planet(7, "Kamino", "temperate", "ocean", 1L, 0L)));
+		planetFacetIndex.rebuild().block();
+
+		Assertions.assertFalse(planetFacetIndex.mightContain(6));
+		Assertions.assertTrue(planetFacetIndex.mightContain(7));
+		Assertions.assertTrue(planetFacetIndex.mightContain(8));
+	}
+
+	@Test
+	@DisplayName("recordFalseNegative indexes the planet another writer created below the high-water mark")
+	public void recordFalseNegative_LetsIdThrough_WhenPlanetWasFound() {
+		planetFacetIndex.rebuild().block();
+		planetFacetIndex.remove(3);
+		Assertions.assertFalse(planetFacetIndex.mightContain(3));
+
+		planetFacetIndex.recordFalseNegative(naboo);
+
+		Assertions.assertTrue(planetFacetIndex.mightContain(3));
+		Assertions.assertEquals(1, planetFacetIndex.getFalseNegativeLookups());
+		Assertions.assertEquals(List.of(3), planetFacetIndex.match(null, List.of("swamps"), true, 0, 10).getIds());
+		Assertions.assertTrue(Double.isNaN(planetFacetIndex.falsePositiveRate()));
+	}
+
+	private void givenPlanets(List<Planet> planets) {
+		BDDMockito.when(planetRepositoryMock.findPage(ArgumentMatchers.anyInt(), ArgumentMatchers.anyInt()))
+			.then(invocation -> Flux.fromIterable(planets)
+					.filter(planet -> planet.getId() > invocation.<Integer>getArgument(0))
+					.take(invocation.<Integer>getArgument(1)));
+	}
+
+}
@@ -21,7 +21,10 @@ import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import org.springframework.web.reactive.function.BodyInserters;
 
+import com.wander.swplanet.cache.PlanetCache;
+import com.wander.swplanet.client.SwapiCatalogue;
 import com.wander.swplanet.domain.Planet;
+import com.wander.swplanet.domain.PlanetPageState;
 import com.wander.swplanet.repository.PlanetRepository;
 import com.wander.swplanet.util.PlanetCreator;
 
@@ -42,9 +45,15 @@ public class PlanetControllerIT {
 	@MockBean
 	private PlanetRepository planetRepositoryMock;
 	
+	@MockBean
+	private SwapiCatalogue swapiCatalogueMock;
+	
 	@Autowired
 	private WebTestClient webTestClient;
 	
+	@Autowired
+	private PlanetCache planetCache;
+	
 	private final Planet planetValid = PlanetCreator.createValidPlanet();
 	
 	@BeforeAll
@@ -56,9 +65,20 @@ public class PlanetControllerIT {
 	
 	@BeforeEach
 	public void setUp() {
+		planetCache.clear();
+		
+		BDDMockito.when(swapiCatalogueMock.findFilmAppearences(ArgumentMatchers.anyString()))
+			.thenReturn(Mono.empty());
+		
 		BDDMockito.when(planetRepositoryMock.findAll())
 			.thenReturn(Flux.just(planetValid));
 		
+		BDDMockito.when(planetRepositoryMock.findPage(ArgumentMatchers.anyInt(), ArgumentMatchers.anyInt()))
+			.thenReturn(Flux.just(planetValid));
+		
+		BDDMockito.when(planetRepositoryMock.findPageState(ArgumentMatchers.anyInt(), ArgumentMatchers.anyInt()))
+			.thenReturn(Mono.just(new PlanetPageState(1, 1, 1, 0)));
+		
 		BDDMockito.when(planetRepositoryMock.findById(ArgumentMatchers.anyInt()))
 			.thenReturn(Mono.just(planetValid));
 		
@@ -66,14 +86,15 @@ public class PlanetControllerIT {
 			.thenReturn(Mono.just(planetValid));
 		
 		BDDMockito.when(planetRepositoryMock
-				.saveAll(List.of(PlanetCreator.createPlanetToBeSaved(), PlanetCreator.createPlanetToBeSaved())))
+				.insertAll(List.of(PlanetCreator.createPlanetToBeSaved(), PlanetCreator.createPlanetToBeSaved())))
 				.thenReturn(Flux.just(planetValid, planetValid));
 		
-		BDDMockito.when(planetRepositoryMock.delete(ArgumentMatchers.any(Planet.class)))
-			.thenReturn(Mono.empty());
+		BDDMockito.when(planetRepositoryMock.deletePlanet(ArgumentMatchers.anyInt()))
+			.thenReturn(Mono.just(1));
 	
-		BDDMockito.when(planetRepositoryMock.save(PlanetCreator.createValidUpdatedPlanet()))
-			.thenReturn(Mono.empty());
+		BDDMockito.when(planetRepositoryMock.updatePlanet(ArgumentMatchers.anyInt(), ArgumentMatchers.any(),
+				ArgumentMatchers.any(), ArgumentMatchers.any(), ArgumentMatchers.any()))
+			.thenReturn(Mono.just(1));
 	}
 	
 	@Test
@@ -292,7 +313,7 @@ public class PlanetControllerIT {
 		Planet planetToSave = PlanetCreator.createPlanetToBeSaved();
 		
 		BDDMockito.when(planetRepositoryMock
-				.saveAll(ArgumentMatchers.anyIterable()))
+				.insertAll(ArgumentMatchers.anyList()))
 				.thenReturn(Flux.just(planetValid, planetValid.withName("")));
 		
 		webTestClient
@@ -363,9 +384,9 @@ public class PlanetControllerIT {
 	@Test
 	@DisplayName("delete returns mono error when planet does not exist - logged user: admin")
 	@WithUserDetails(ADMIN)
-	public void delete_ReturnMonoError_WhenEmptyMonoIsReturned() {
-		BDDMockito.when(planetRepositoryMock.findById(ArgumentMatchers.anyInt()))
-			.thenReturn(Mono.empty());
+	public void delete_ReturnMonoError_WhenNoRowIsAffected() {
+		BDDMockito.when(planetRepositoryMock.deletePlanet(ArgumentMatchers.anyInt()))
+			.thenReturn(Mono.just(0));
 		
 		webTestClient
 			.delete()
@@ -421,9 +442,10 @@ public class PlanetControllerIT {
 	@Test
 	@DisplayName("update returns mono error when planet does not exist - logged user: admin")
 	@WithUserDetails(ADMIN)
-	public void update_ReturnMonoError_WhenEmptyMonoIsReturned() {
-		BDDMockito.when(planetRepositoryMock.findById(ArgumentMatchers.anyInt()))
-			.thenReturn(Mono.empty());
+	public void update_ReturnMonoError_WhenNoRowIsAffected() {
+		BDDMockito.when(planetRepositoryMock.updatePlanet(ArgumentMatchers.anyInt(), ArgumentMatchers.any(),
+				ArgumentMatchers.any(), ArgumentMatchers.any(), ArgumentMatchers.any()))
+			.thenReturn(Mono.just(0));
 	
 		webTestClient
 			.put()
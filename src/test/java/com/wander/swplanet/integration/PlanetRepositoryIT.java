@@ -0,0 +1,84 @@
+package com.wander.swplanet.integration;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import com.wander.swplanet.client.SwapiCatalogue;
+import com.wander.swplanet.domain.Planet;
+import com.wander.swplanet.domain.PlanetPageState;
+import com.wander.swplanet.repository.PlanetRepository;
+import com.wander.swplanet.util.PlanetCreator;
+
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+/**
+ * Queries of the planet repository run against the configured MySQL database.
+ */
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+public class PlanetRepositoryIT {
+	
+	@MockBean
+	private SwapiCatalogue swapiCatalogueMock;
+	
+	@Autowired
+	private PlanetRepository planetRepository;
+	
+	private List<Planet> inserted = List.of();
+	
+	@AfterEach
+	public void tearDown() {
+		Flux.fromIterable(inserted).concatMap(planet -> planetRepository.deletePlanet(planet.getId())).blockLast();
+	}
+	
+	@Test
+	@DisplayName("findPageState reads count, highest id and the id and version sums of the page")
+	public void findPageState_ReturnsPageFigures_WhenPlanetsExist() {
+		Planet planet = PlanetCreator.createPlanetToBeSaved();
+		inserted = planetRepository.insertAll(List.of(planet, planet.withName("Hoth"), planet.withName("Naboo")))
+				.collectList()
+				.block();
+		List<Integer> ids = inserted.stream().map(Planet::getId).collect(Collectors.toList());
+		planetRepository.updatePlanet(ids.get(1), "Hoth", "frozen", "tundra", null).block();
+		
+		StepVerifier.create(planetRepository.findPageState(ids.get(0) - 1, 2))
+			.expectSubscription()
+			.expectNext(new PlanetPageState(2, ids.get(1), ids.get(0) + ids.get(1), 1))
+			.verifyComplete();
+		
+		StepVerifier.create(planetRepository.findPageState(ids.get(1), 1))
+			.expectSubscription()
+			.expectNext(new PlanetPageState(1, ids.get(2), ids.get(2), 0))
+			.verifyComplete();
+	}
+	
+	@Test
+	@DisplayName("save fails on a taken id without version and on a stale version, as the service expects")
+	public void save_ReturnsMonoError_WhenIdIsTakenOrVersionIsStale() {
+		inserted = planetRepository.insertAll(List.of(PlanetCreator.createPlanetToBeSaved())).collectList().block();
+		Planet planet = inserted.get(0);
+		
+		StepVerifier.create(planetRepository.save(planet.withVersion(null)))
+			.expectSubscription()
+			.expectError(DataIntegrityViolationException.class)
+			.verify();
+		
+		StepVerifier.create(planetRepository.save(planet.withVersion(3L)))
+			.expectSubscription()
+			.expectError(OptimisticLockingFailureException.class)
+			.verify();
+	}
+	
+}
@@ -0,0 +1,119 @@
+package com.wander.swplanet.repository;
+
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.r2dbc.dialect.H2Dialect;
+import org.springframework.r2dbc.core.DatabaseClient;
+
+import com.wander.swplanet.domain.Planet;
+import com.wander.swplanet.domain.PlanetPageState;
+import com.wander.swplanet.util.PlanetCreator;
+
+import io.r2dbc.h2.H2ConnectionFactory;
+import reactor.test.StepVerifier;
+
+class PlanetRepositoryCustomImplTest {
+	
+	private DatabaseClient databaseClient;
+	
+	private PlanetRepositoryCustomImpl planetRepository;
+	
+	@BeforeEach
+	public void setUp() {
+		databaseClient = DatabaseClient.create(H2ConnectionFactory.inMemory(UUID.randomUUID().toString()));
+		databaseClient.sql("CREATE TABLE planet (id INT AUTO_INCREMENT PRIMARY KEY, name VARCHAR(255) NOT NULL, "
+				+ "climate VARCHAR(255), terrain VARCHAR(255), film_appearences INT, "
+				+ "version BIGINT NOT NULL DEFAULT 0)")
+			.then()
+			.block();
+		planetRepository = new PlanetRepositoryCustomImpl(databaseClient,
+				new R2dbcEntityTemplate(databaseClient, H2Dialect.INSTANCE), 2);
+	}
+	
+	@Test
+	@DisplayName("insertAll inserts every planet in chunks and returns the generated ids")
+	public void insertAll_ReturnsPlanetsWithGeneratedIds_WhenSuccessful() {
+		Planet planet = PlanetCreator.createPlanetToBeSaved().withVersion(0L);
+		
+		StepVerifier.create(planetRepository.insertAll(List.of(planet, planet.withName("Hoth"), planet.withClimate(null))))
+			.expectSubscription()
+			.expectNext(planet.withId(1), planet.withName("Hoth").withId(2), planet.withClimate(null).withId(3))
+			.verifyComplete();
+		
+		StepVerifier.create(databaseClient.sql("SELECT name FROM planet WHERE climate IS NULL")
+				.map(row -> row.get("name", String.class))
+				.all())
+			.expectNext(planet.getName())
+			.verifyComplete();
+	}
+	
+	@Test
+	@DisplayName("search returns planets matching the name prefix and filters in id order from the cursor")
+	public void search_ReturnsMatchingPlanets_WhenFiltered() {
+		Planet planet = PlanetCreator.createPlanetToBeSaved().withVersion(0L);
+		planetRepository.insertAll(List.of(planet.withName("Tatooine"), planet.withName("Taris"),
+				planet.withName("Tatooine II").withClimate("frozen"), planet.withName("Ta%"),
+				planet.withName("Tatooine III"))).blockLast();
+		
+		StepVerifier.create(planetRepository.search("Tat", planet.getClimate(), planet.getTerrain(), 0, 10))
+			.expectSubscription()
+			.expectNext(planet.withName("Tatooine").withId(1), planet.withName("Tatooine III").withId(5))
+			.verifyComplete();
+		
+		StepVerifier.create(planetRepository.search("Ta%", null, null, 0, 10))
+			.expectSubscription()
+			.expectNext(planet.withName("Ta%").withId(4))
+			.verifyComplete();
+		
+		StepVerifier.create(planetRepository.search(null, null, null, 1, 2))
+			.expectSubscription()
+			.expectNext(planet.withName("Taris").withId(2), planet.withName("Tatooine II").withClimate("frozen").withId(3))
+			.verifyComplete();
+	}
+
+	@Test
+	@DisplayName("findPageState reads count, highest id and the id and version sums of the page")
+	public void findPageState_ReturnsPageFigures_WhenPlanetsExist() {
+		Planet planet = PlanetCreator.createPlanetToBeSaved().withVersion(0L);
+		planetRepository.insertAll(List.of(planet, planet.withName("Hoth"), planet.withName("Naboo"))).blockLast();
+		databaseClient.sql("UPDATE planet SET version = 4 WHERE id = 2").then().block();
+		
+		StepVerifier.create(planetRepository.findPageState(0, 2))
+			.expectSubscription()
+			.expectNext(new PlanetPageState(2, 2, 3, 4))
+			.verifyComplete();
+		
+		StepVerifier.create(planetRepository.findPageState(3, 2))
+			.expectSubscription()
+			.expectNext(new PlanetPageState(0, 0, 0, 0))
+			.verifyComplete();
+	}
+	
+	@Test
+	@DisplayName("exportAll encodes every row in id order, a page of fetch size rows at a time")
+	public void exportAll_EncodesRowsInIdOrder_WhenSuccessful() {
+		Planet planet = PlanetCreator.createPlanetToBeSaved().withVersion(0L);
+		planetRepository.insertAll(List.of(planet.withName("Tatooine"), planet.withName("Hoth").withClimate(null),
+				planet.withName("Naboo"))).blockLast();
+		databaseClient.sql("DELETE FROM planet WHERE name = 'Hoth'").then().block();
+		planetRepository.insertAll(List.of(planet.withName("Kamino"))).blockLast();
+		
+		StepVerifier.create(planetRepository.exportAll(2, row -> row.get("id", Integer.class) + ":"
+				+ row.get("name", String.class) + ":" + row.get("climate", String.class)))
+			.expectSubscription()
+			.expectNext("1:Tatooine:" + planet.getClimate(), "3:Naboo:" + planet.getClimate(),
+					"4:Kamino:" + planet.getClimate())
+			.verifyComplete();
+		
+		StepVerifier.create(planetRepository.exportAll(3, row -> row.get("name", String.class)))
+			.expectSubscription()
+			.expectNext("Tatooine", "Naboo", "Kamino")
+			.verifyComplete();
+	}
+
+}
@@ -0,0 +1,105 @@
+package com.wander.swplanet.security;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.BDDMockito;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import com.wander.swplanet.domain.User;
+
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+@ExtendWith(SpringExtension.class)
+class CachingReactiveAuthenticationManagerTest {
+
+	@Mock
+	private ReactiveAuthenticationManager delegateMock;
+
+	private AuthenticationCache authenticationCache;
+
+	private CachingReactiveAuthenticationManager authenticationManager;
+
+	private final User user = new User(1, "Darth Vader", "vader", "{noop}empire", "ROLE_USER,ROLE_ADMIN");
+
+	private final Authentication authenticated =
+			new UsernamePasswordAuthenticationToken(user, user.getPassword(), user.getAuthorities());
+
+	@BeforeEach
+	public void setUp() {
+		authenticationCache = new AuthenticationCache(100, Duration.ofMinutes(5));
+		authenticationManager = new CachingReactiveAuthenticationManager(delegateMock, authenticationCache);
+
+		BDDMockito.when(delegateMock.authenticate(ArgumentMatchers.any()))
+			.thenReturn(Mono.just(authenticated));
+	}
+
+	@Test
+	@DisplayName("authenticate returns the cached authentication on repeated credentials")
+	public void authenticate_ReturnsCachedAuthentication_WhenCredentialsRepeat() {
+		StepVerifier.create(authenticationManager.authenticate(credentials("vader", "empire")))
+			.expectNext(authenticated)
+			.verifyComplete();
+
+		StepVerifier.create(authenticationManager.authenticate(credentials("vader", "empire")))
+			.expectNext(authenticated)
+			.verifyComplete();
+
+		Mockito.verify(delegateMock, Mockito.times(1)).authenticate(ArgumentMatchers.any());
+		Assertions.assertEquals(1, authenticationCache.stats().hitCount());
+		Assertions.assertEquals(1, authenticationCache.stats().missCount());
+	}
+
+	@Test
+	@DisplayName("authenticate delegates when the presented secret differs from the cached one")
+	public void authenticate_Delegates_WhenSecretDiffers() {
+		authenticationManager.authenticate(credentials("vader", "empire")).block();
+
+		BDDMockito.when(delegateMock.authenticate(ArgumentMatchers.any()))
+			.thenReturn(Mono.error(new BadCredentialsException("Invalid Credentials")));
+
+		StepVerifier.create(authenticationManager.authenticate(credentials("vader", "rebel")))
+			.expectError(BadCredentialsException.class)
+			.verify();
+	}
+
+	@Test
+	@DisplayName("authenticate does not cache failed authentications")
+	public void authenticate_DoesNotCache_WhenDelegateFails() {
+		BDDMockito.when(delegateMock.authenticate(ArgumentMatchers.any()))
+			.thenReturn(Mono.error(new BadCredentialsException("Invalid Credentials")));
+
+		authenticationManager.authenticate(credentials("vader", "empire"))
+			.onErrorResume(e -> Mono.empty())
+			.block();
+
+		Assertions.assertNull(authenticationCache.get("vader", "empire"));
+	}
+
+	@Test
+	@DisplayName("invalidate removes every cached entry of the changed user")
+	public void invalidate_RemovesEntries_WhenUserChanges() {
+		authenticationManager.authenticate(credentials("vader", "empire")).block();
+
+		authenticationCache.invalidate(new User(1, "Anakin Skywalker", "anakin", "{noop}empire", "ROLE_USER"));
+
+		Assertions.assertNull(authenticationCache.get("vader", "empire"));
+	}
+
+	private Authentication credentials(String username, String password) {
+		return new UsernamePasswordAuthenticationToken(username, password);
+	}
+
+}
@@ -0,0 +1,53 @@
+package com.wander.swplanet.security;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.web.server.context.ServerSecurityContextRepository;
+import org.springframework.security.web.server.util.matcher.ServerWebExchangeMatchers;
+
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+class TokenSecurityContextRepositoryTest {
+
+	private final TokenService tokenService = new TokenService("", Duration.ofHours(1));
+
+	private final ServerSecurityContextRepository delegateMock = Mockito.mock(ServerSecurityContextRepository.class);
+
+	private final TokenSecurityContextRepository repository = new TokenSecurityContextRepository(tokenService,
+			delegateMock, ServerWebExchangeMatchers.pathMatchers(HttpMethod.POST, "/auth/token"));
+
+	private final String token = tokenService.issue(new UsernamePasswordAuthenticationToken("vader", "empire",
+			AuthorityUtils.createAuthorityList("ROLE_ADMIN"))).getToken();
+
+	@Test
+	@DisplayName("load authenticates a request carrying a valid bearer token")
+	public void load_ReturnsContext_WhenBearerTokenIsValid() {
+		StepVerifier.create(repository.load(exchange(MockServerHttpRequest.get("/planets"))))
+			.expectNextMatches(context -> context.getAuthentication().getName().equals("vader"))
+			.verifyComplete();
+	}
+
+	@Test
+	@DisplayName("load ignores bearer tokens on the token endpoint, so a token cannot renew itself")
+	public void load_ReturnsEmpty_WhenBearerTokenIssuesToken() {
+		StepVerifier.create(repository.load(exchange(MockServerHttpRequest.post("/auth/token"))))
+			.verifyComplete();
+
+		Mockito.verifyNoInteractions(delegateMock);
+	}
+
+	private MockServerWebExchange exchange(MockServerHttpRequest.BaseBuilder<?> request) {
+		return MockServerWebExchange.from(request.header(HttpHeaders.AUTHORIZATION, "Bearer " + token));
+	}
+
+}
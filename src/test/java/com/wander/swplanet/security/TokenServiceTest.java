@@ -0,0 +1,79 @@
+package com.wander.swplanet.security;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Base64;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+
+class TokenServiceTest {
+
+	private static final String SECRET = Base64.getEncoder().encodeToString("a-test-secret-of-enough-length!!".getBytes());
+
+	private final Instant now = Instant.parse("2021-04-01T10:00:00Z");
+
+	private final TokenService tokenService =
+			new TokenService(SECRET, Duration.ofHours(1), Clock.fixed(now, ZoneOffset.UTC));
+
+	private final Authentication vader = new UsernamePasswordAuthenticationToken("vader", "empire",
+			AuthorityUtils.commaSeparatedStringToAuthorityList("ROLE_USER,ROLE_ADMIN"));
+
+	@Test
+	@DisplayName("verify returns the authentication of a token issued by the service")
+	public void verify_ReturnsAuthentication_WhenTokenIsValid() {
+		AccessToken accessToken = tokenService.issue(vader);
+
+		Optional<Authentication> authentication = tokenService.verify(accessToken.getToken());
+
+		Assertions.assertTrue(authentication.isPresent());
+		Assertions.assertEquals("vader", authentication.get().getName());
+		Assertions.assertEquals(vader.getAuthorities(), authentication.get().getAuthorities());
+		Assertions.assertNull(authentication.get().getCredentials());
+		Assertions.assertEquals(3600, accessToken.getExpiresIn());
+	}
+
+	@Test
+	@DisplayName("verify rejects a token whose payload was tampered with")
+	public void verify_ReturnsEmpty_WhenPayloadIsTampered() {
+		String token = tokenService.issue(vader).getToken();
+		String forgedPayload = Base64.getUrlEncoder().withoutPadding()
+				.encodeToString("skywalker:ROLE_USER,ROLE_ADMIN:9999999999".getBytes());
+
+		Assertions.assertTrue(tokenService.verify(forgedPayload + token.substring(token.indexOf('.'))).isEmpty());
+	}
+
+	@Test
+	@DisplayName("verify rejects a token signed with another secret")
+	public void verify_ReturnsEmpty_WhenSignedWithOtherSecret() {
+		TokenService otherService = new TokenService("", Duration.ofHours(1), Clock.fixed(now, ZoneOffset.UTC));
+
+		Assertions.assertTrue(tokenService.verify(otherService.issue(vader).getToken()).isEmpty());
+	}
+
+	@Test
+	@DisplayName("verify rejects an expired token")
+	public void verify_ReturnsEmpty_WhenTokenIsExpired() {
+		String token = tokenService.issue(vader).getToken();
+		TokenService later = new TokenService(SECRET, Duration.ofHours(1),
+				Clock.fixed(now.plus(Duration.ofHours(2)), ZoneOffset.UTC));
+
+		Assertions.assertTrue(later.verify(token).isEmpty());
+	}
+
+	@Test
+	@DisplayName("verify rejects malformed tokens")
+	public void verify_ReturnsEmpty_WhenTokenIsMalformed() {
+		Assertions.assertTrue(tokenService.verify("not-a-token").isEmpty());
+		Assertions.assertTrue(tokenService.verify("abc.%%%").isEmpty());
+		Assertions.assertTrue(tokenService.verify(".").isEmpty());
+	}
+
+}
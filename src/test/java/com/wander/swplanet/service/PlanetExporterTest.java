@@ -0,0 +1,79 @@
+package com.wander.swplanet.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.BDDMockito;
+import org.mockito.Mockito;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wander.swplanet.repository.PlanetRepository;
+
+import io.r2dbc.spi.Row;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+class PlanetExporterTest {
+
+	private final PlanetRepository planetRepositoryMock = Mockito.mock(PlanetRepository.class);
+
+	private final PlanetExporter planetExporter = new PlanetExporter(planetRepositoryMock, new ObjectMapper(), 100, 2);
+
+	@BeforeEach
+	public void setUp() {
+		List<Row> rows = List.of(row(1, "Tatooine", "arid", "desert", 5L, 0L),
+				row(2, "Hoth, \"the ice planet\"", null, "tundra", null, 3L),
+				row(3, "Naboo", "temperate", null, 4L, 1L));
+		BDDMockito.when(planetRepositoryMock.exportAll(ArgumentMatchers.eq(100), ArgumentMatchers.any()))
+			.then(invocation -> Flux.fromIterable(rows).map(invocation.<Function<Row, ?>>getArgument(1)));
+	}
+
+	@Test
+	@DisplayName("exportNdjson writes a JSON object per row, rows per buffer at a time")
+	public void exportNdjson_WritesJsonLines_WhenSuccessful() {
+		StepVerifier.create(planetExporter.exportNdjson(DefaultDataBufferFactory.sharedInstance).map(this::text))
+			.expectNext("{\"id\":1,\"name\":\"Tatooine\",\"climate\":\"arid\",\"terrain\":\"desert\",\"filmAppearences\":5,\"version\":0}\n"
+					+ "{\"id\":2,\"name\":\"Hoth, \\\"the ice planet\\\"\",\"climate\":null,\"terrain\":\"tundra\",\"filmAppearences\":null,\"version\":3}\n")
+			.expectNext("{\"id\":3,\"name\":\"Naboo\",\"climate\":\"temperate\",\"terrain\":null,\"filmAppearences\":4,\"version\":1}\n")
+			.verifyComplete();
+	}
+
+	@Test
+	@DisplayName("exportCsv writes the header and a quoted line per row")
+	public void exportCsv_WritesHeaderAndLines_WhenSuccessful() {
+		StepVerifier.create(planetExporter.exportCsv(DefaultDataBufferFactory.sharedInstance).map(this::text))
+			.expectNext("id,name,climate,terrain,film_appearences,version\n1,Tatooine,arid,desert,5,0\n")
+			.expectNext("2,\"Hoth, \"\"the ice planet\"\"\",,tundra,,3\n3,Naboo,temperate,,4,1\n")
+			.verifyComplete();
+	}
+
+	private Row row(Integer id, String name, String climate, String terrain, Long filmAppearences, Long version) {
+		Map<String, Object> columns = new HashMap<>();
+		columns.put("id", id);
+		columns.put("name", name);
+		columns.put("climate", climate);
+		columns.put("terrain", terrain);
+		columns.put("film_appearences", filmAppearences);
+		columns.put("version", version);
+		Row row = Mockito.mock(Row.class);
+		BDDMockito.when(row.get(ArgumentMatchers.anyString()))
+			.then(invocation -> columns.get(invocation.<String>getArgument(0)));
+		BDDMockito.when(row.get(ArgumentMatchers.anyString(), ArgumentMatchers.eq(String.class)))
+			.then(invocation -> columns.get(invocation.<String>getArgument(0)));
+		return row;
+	}
+
+	private String text(DataBuffer buffer) {
+		return buffer.toString(StandardCharsets.UTF_8);
+	}
+
+}
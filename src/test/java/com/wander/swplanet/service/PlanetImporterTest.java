@@ -0,0 +1,122 @@
+package com.wander.swplanet.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import javax.validation.Validation;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.BDDMockito;
+import org.mockito.Mockito;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wander.swplanet.codec.PlanetMediaTypes;
+import com.wander.swplanet.domain.ImportReport;
+import com.wander.swplanet.domain.Planet;
+
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+class PlanetImporterTest {
+
+	private final PlanetService planetServiceMock = Mockito.mock(PlanetService.class);
+
+	private final PlanetImporter planetImporter = new PlanetImporter(planetServiceMock, new ObjectMapper(),
+			Validation.buildDefaultValidatorFactory().getValidator(), 2, 10, 1024);
+
+	@BeforeEach
+	public void setUp() {
+		BDDMockito.when(planetServiceMock.saveAll(ArgumentMatchers.anyList()))
+			.then(invocation -> Flux.fromIterable(invocation.<List<Planet>>getArgument(0)));
+	}
+
+	@Test
+	@DisplayName("importPlanets writes NDJSON lines split across buffers and rejects the invalid ones")
+	public void importPlanets_RejectsInvalidLines_WhenNdjsonIsStreamed() {
+		Flux<DataBuffer> body = buffers("{\"name\":\"Tatoo", "ine\",\"id\":9}\n{\"climate\":\"arid\"}\r\n\n{oops\n",
+				"{\"name\":\"Hoth\",\"terrain\":\"tundra\"}");
+
+		StepVerifier.create(planetImporter.importPlanets(body, MediaType.APPLICATION_NDJSON))
+			.assertNext(report -> {
+				Assertions.assertEquals(1, report.getAccepted());
+				Assertions.assertEquals(1, report.getRejected());
+				Assertions.assertEquals(2, report.getRejections().get(0).getLine());
+				Assertions.assertEquals("name: The name of planet is mandatory, name: must not be null",
+						report.getRejections().get(0).getReason());
+			})
+			.assertNext(report -> {
+				Assertions.assertEquals(2, report.getAccepted());
+				Assertions.assertEquals(4, report.getRejections().get(1).getLine());
+				Assertions.assertTrue(report.getRejections().get(1).getReason().startsWith("Malformed JSON"));
+			})
+			.assertNext(report -> Assertions.assertTrue(report.isComplete()))
+			.verifyComplete();
+
+		Mockito.verify(planetServiceMock).saveAll(List.of(new Planet(null, "Tatooine", null, null, null, null)));
+		Mockito.verify(planetServiceMock).saveAll(List.of(new Planet(null, "Hoth", null, "tundra", null, null)));
+	}
+
+	@Test
+	@DisplayName("importPlanets reads CSV columns by header and writes them in chunks")
+	public void importPlanets_WritesChunks_WhenCsvIsStreamed() {
+		String rows = IntStream.rangeClosed(1, 5)
+				.mapToObj(i -> "\"Planet, " + i + "\",,arid," + i + "\n")
+				.collect(Collectors.joining());
+
+		StepVerifier.create(planetImporter.importPlanets(buffers("name,terrain,climate,filmAppearences\n" + rows + "Naboo,,,many\n"),
+					PlanetMediaTypes.TEXT_CSV).last())
+			.assertNext(report -> {
+				Assertions.assertEquals(5, report.getAccepted());
+				Assertions.assertEquals(List.of(new ImportReport.Rejection(7, "Invalid film_appearences: many")),
+						report.getRejections());
+				Assertions.assertTrue(report.isComplete());
+			})
+			.verifyComplete();
+
+		Mockito.verify(planetServiceMock, Mockito.times(3)).saveAll(ArgumentMatchers.anyList());
+		Mockito.verify(planetServiceMock).saveAll(List.of(new Planet(null, "Planet, 1", "arid", null, 1L, null),
+				new Planet(null, "Planet, 2", "arid", null, 2L, null)));
+	}
+
+	@Test
+	@DisplayName("importPlanets rejects the rows of a chunk that fails to be written and goes on")
+	public void importPlanets_RejectsChunk_WhenWriteFails() {
+		BDDMockito.when(planetServiceMock.saveAll(List.of(new Planet(null, "Hoth", null, null, null, null),
+				new Planet(null, "Bespin", null, null, null, null))))
+			.thenReturn(Flux.error(new ResponseStatusException(HttpStatus.CONFLICT, "Planet already exists")));
+
+		StepVerifier.create(planetImporter.importPlanets(buffers("name\nHoth\nBespin\n\nNaboo\n"), PlanetMediaTypes.TEXT_CSV).last())
+			.assertNext(report -> {
+				Assertions.assertEquals(1, report.getAccepted());
+				Assertions.assertEquals(List.of(new ImportReport.Rejection(2, "Not written: Planet already exists"),
+						new ImportReport.Rejection(3, "Not written: Planet already exists")), report.getRejections());
+			})
+			.verifyComplete();
+	}
+
+	@Test
+	@DisplayName("importPlanets fails with 400 when the CSV header has no name column")
+	public void importPlanets_Fails_WhenCsvHeaderHasNoName() {
+		StepVerifier.create(planetImporter.importPlanets(buffers("climate\narid\n"), PlanetMediaTypes.TEXT_CSV))
+			.expectErrorSatisfies(e -> Assertions.assertEquals(HttpStatus.BAD_REQUEST,
+					((ResponseStatusException) e).getStatus()))
+			.verify();
+	}
+
+	private Flux<DataBuffer> buffers(String... chunks) {
+		return Flux.just(chunks)
+				.map(chunk -> DefaultDataBufferFactory.sharedInstance.wrap(chunk.getBytes(StandardCharsets.UTF_8)));
+	}
+
+}
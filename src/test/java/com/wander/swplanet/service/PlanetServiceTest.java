@@ -1,6 +1,8 @@
 package com.wander.swplanet.service;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.FutureTask;
 
 import org.junit.jupiter.api.Assertions;
@@ -13,10 +15,24 @@ import org.mockito.ArgumentMatchers;
 import org.mockito.BDDMockito;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.Spy;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.reactive.TransactionalOperator;
 import org.springframework.web.server.ResponseStatusException;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wander.swplanet.cache.CaffeinePlanetCache;
+import com.wander.swplanet.cache.PlanetCache;
+import com.wander.swplanet.cache.PlanetJsonCache;
+import com.wander.swplanet.client.SwapiCatalogue;
 import com.wander.swplanet.domain.Planet;
+import com.wander.swplanet.domain.PlanetPage;
+import com.wander.swplanet.domain.PlanetPageState;
+import com.wander.swplanet.index.PlanetFacetIndex;
 import com.wander.swplanet.repository.PlanetRepository;
 import com.wander.swplanet.util.PlanetCreator;
 
@@ -24,6 +40,7 @@ import reactor.blockhound.BlockHound;
 import reactor.blockhound.BlockingOperationError;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
 import reactor.core.scheduler.Schedulers;
 import reactor.test.StepVerifier;
 
@@ -36,6 +53,24 @@ class PlanetServiceTest {
 	@Mock
 	private PlanetRepository planetRepositoryMock;
 	
+	@Spy
+	private PlanetCache planetCache = new CaffeinePlanetCache(100, Duration.ofMinutes(1));
+	
+	@Spy
+	private PlanetJsonCache planetJsonCache = new PlanetJsonCache(new ObjectMapper(), 100, 16, 65536, Duration.ofMinutes(10));
+	
+	@Mock
+	private SwapiCatalogue swapiCatalogueMock;
+	
+	@Mock
+	private PlanetFacetIndex planetFacetIndexMock;
+	
+	@Mock
+	private PlanetInsertBatcher planetInsertBatcherMock;
+	
+	@Mock
+	private TransactionalOperator transactionalOperatorMock;
+	
 	private final Planet planetValid = PlanetCreator.createValidPlanet();
 	
 	@BeforeAll
@@ -68,25 +103,144 @@ class PlanetServiceTest {
 			.thenReturn(Mono.just(planetValid));
 		
 		BDDMockito.when(planetRepositoryMock
-				.saveAll(List.of(PlanetCreator.createPlanetToBeSaved(), PlanetCreator.createPlanetToBeSaved())))
+				.insertAll(List.of(PlanetCreator.createPlanetToBeSaved(), PlanetCreator.createPlanetToBeSaved())))
 				.thenReturn(Flux.just(planetValid, planetValid));
 		
-		BDDMockito.when(planetRepositoryMock.delete(ArgumentMatchers.any(Planet.class))).
-			thenReturn(Mono.empty());
+		BDDMockito.when(planetRepositoryMock.deletePlanet(ArgumentMatchers.anyInt()))
+			.thenReturn(Mono.just(1));
+		
+		BDDMockito.when(planetRepositoryMock.updatePlanet(ArgumentMatchers.anyInt(), ArgumentMatchers.any(),
+				ArgumentMatchers.any(), ArgumentMatchers.any(), ArgumentMatchers.any()))
+			.thenReturn(Mono.just(1));
+		
+		BDDMockito.when(planetRepositoryMock.updatePlanetVersion(ArgumentMatchers.anyInt(), ArgumentMatchers.anyLong(),
+				ArgumentMatchers.any(), ArgumentMatchers.any(), ArgumentMatchers.any(), ArgumentMatchers.any()))
+			.thenReturn(Mono.just(1));
+		
+		BDDMockito.when(planetRepositoryMock.existsById(ArgumentMatchers.anyInt()))
+			.thenReturn(Mono.just(true));
 		
-		BDDMockito.when(planetRepositoryMock.save(PlanetCreator.createValidUpdatedPlanet()))
+		BDDMockito.when(swapiCatalogueMock.findFilmAppearences(ArgumentMatchers.anyString()))
 			.thenReturn(Mono.empty());
+		
+		BDDMockito.when(planetFacetIndexMock.mightContain(ArgumentMatchers.anyInt()))
+			.thenReturn(true);
+		
+		BDDMockito.when(transactionalOperatorMock.transactional(ArgumentMatchers.<Flux<Planet>>any()))
+			.then(invocation -> invocation.getArgument(0));
+	}
+	
+	@Test
+	@DisplayName("findPage returns a page with the next cursor when there are more planets")
+	public void findPage_ReturnsPageWithNextCursor_WhenMorePlanetsExist() {
+		BDDMockito.when(planetRepositoryMock.findPage(0, 3))
+			.thenReturn(Flux.just(planetValid, planetValid.withId(2), planetValid.withId(3)));
+		
+		StepVerifier.create(planetService.findPage(0, 2))
+			.expectSubscription()
+			.assertNext(page -> {
+				Assertions.assertEquals(List.of(planetValid, planetValid.withId(2)), page.getPlanets());
+				Assertions.assertEquals(2, page.getNext());
+			})
+			.verifyComplete();
+	}
+	
+	@Test
+	@DisplayName("findPage returns the last page without a next cursor")
+	public void findPage_ReturnsPageWithoutNextCursor_WhenLastPage() {
+		BDDMockito.when(planetRepositoryMock.findPage(1, PlanetService.MAX_PAGE_SIZE + 1))
+			.thenReturn(Flux.just(planetValid.withId(2)));
+		
+		StepVerifier.create(planetService.findPage(1, PlanetService.MAX_PAGE_SIZE * 10))
+			.expectSubscription()
+			.assertNext(page -> Assertions.assertFalse(page.hasNext()))
+			.verifyComplete();
 	}
 	
 	@Test
-	@DisplayName("findAll returns a flux of planet")
-	public void findAll_ReturnFluxOfPlanet_WhenSuccesful() {
-		StepVerifier.create(planetService.findAll())
+	@DisplayName("findPage reads the page again instead of joining a read started before a write")
+	public void findPage_ReadsWrittenPlanets_WhenEarlierReadIsInFlight() {
+		Sinks.Empty<Void> earlierRead = Sinks.empty();
+		BDDMockito.when(planetRepositoryMock.findPage(0, 3))
+			.thenReturn(Flux.just(planetValid).delayUntil(planet -> earlierRead.asMono()),
+					Flux.just(planetValid.withVersion(4L)));
+		
+		Mono<PlanetPage> beforeWrite = planetService.findPage(0, 2).cache();
+		beforeWrite.subscribe();
+		
+		StepVerifier.create(planetService.findPage(0, 2))
+			.expectSubscription()
+			.assertNext(page -> Assertions.assertEquals(List.of(planetValid.withVersion(4L)), page.getPlanets()))
+			.expectComplete()
+			.verify(Duration.ofSeconds(5));
+		
+		earlierRead.tryEmitEmpty();
+		StepVerifier.create(beforeWrite)
+			.assertNext(page -> Assertions.assertEquals(List.of(planetValid), page.getPlanets()))
+			.verifyComplete();
+	}
+	
+	@Test
+	@DisplayName("findPage returns mono error when the limit is not positive")
+	public void findPage_ReturnMonoError_WhenLimitIsInvalid() {
+		StepVerifier.create(planetService.findPage(0, 0))
+			.expectSubscription()
+			.expectError(ResponseStatusException.class)
+			.verify();
+	}
+	
+	@Test
+	@DisplayName("search caps the limit and returns the matching planets")
+	public void search_ReturnsMatchingPlanets_WhenSuccessful() {
+		BDDMockito.when(planetRepositoryMock.search("Tat", "arid", null, 0, PlanetService.MAX_PAGE_SIZE))
+			.thenReturn(Flux.just(planetValid));
+		
+		StepVerifier.create(planetService.search("Tat", "arid", null, 0, PlanetService.MAX_PAGE_SIZE * 10))
 			.expectSubscription()
 			.expectNext(planetValid)
 			.verifyComplete();
 	}
 	
+	@Test
+	@DisplayName("search returns flux error when the cursor is negative")
+	public void search_ReturnFluxError_WhenCursorIsInvalid() {
+		StepVerifier.create(planetService.search(null, null, null, -1, 10))
+			.expectSubscription()
+			.expectError(ResponseStatusException.class)
+			.verify();
+	}
+	
+	@Test
+	@DisplayName("findFacets loads the matching planets in id order with the facet counts")
+	public void findFacets_ReturnsPlanetsAndCounts_WhenIndexIsReady() {
+		Map<String, Map<String, Integer>> counts = Map.of(PlanetFacetIndex.CLIMATE, Map.of("temperate", 2));
+		BDDMockito.when(planetFacetIndexMock.isReady()).thenReturn(true);
+		BDDMockito.when(planetFacetIndexMock.match(List.of("temperate"), null, true, 0, 2))
+			.thenReturn(new PlanetFacetIndex.Match(3, counts, List.of(1, 2), 2));
+		BDDMockito.when(planetRepositoryMock.findAllById(List.of(1, 2)))
+			.thenReturn(Flux.just(planetValid.withId(2), planetValid));
+		
+		StepVerifier.create(planetService.findFacets(List.of("temperate"), null, true, 0, 2))
+			.expectSubscription()
+			.assertNext(facets -> {
+				Assertions.assertEquals(3, facets.getTotal());
+				Assertions.assertEquals(counts, facets.getCounts());
+				Assertions.assertEquals(List.of(planetValid, planetValid.withId(2)), facets.getPlanets());
+				Assertions.assertEquals(2, facets.getNext());
+			})
+			.verifyComplete();
+	}
+	
+	@Test
+	@DisplayName("findFacets returns mono error while the index is being built")
+	public void findFacets_ReturnMonoError_WhenIndexIsNotReady() {
+		StepVerifier.create(planetService.findFacets(List.of("temperate"), null, true, 0, 10))
+			.expectSubscription()
+			.expectErrorMatches(e -> e instanceof ResponseStatusException
+					&& ((ResponseStatusException) e).getStatus() == HttpStatus.SERVICE_UNAVAILABLE)
+			.verify();
+	}
+	
 	@Test
 	@DisplayName("findById returns mono with planet when exists")
 	public void findById_ReturnMonoPlanet_WhenSuccessful() {
@@ -108,6 +262,74 @@ class PlanetServiceTest {
 			.verify();
 	}
 	
+	@Test
+	@DisplayName("findById confirms an id rejected by the id filter and records the planet found as a false negative")
+	public void findById_RecordsFalseNegative_WhenIdFilterRejectsExistingId() {
+		BDDMockito.when(planetFacetIndexMock.mightContain(1)).thenReturn(false);
+		
+		StepVerifier.create(planetService.findById(1))
+			.expectSubscription()
+			.expectNext(planetValid)
+			.verifyComplete();
+		
+		Mockito.verify(planetFacetIndexMock).recordFalseNegative(planetValid);
+	}
+	
+	@Test
+	@DisplayName("findById returns mono error when the id filter rejects an id that is missing")
+	public void findById_ReturnMonoError_WhenIdFilterRejectsMissingId() {
+		BDDMockito.when(planetFacetIndexMock.mightContain(7)).thenReturn(false);
+		BDDMockito.when(planetRepositoryMock.findById(7)).thenReturn(Mono.empty());
+		
+		StepVerifier.create(planetService.findById(7))
+			.expectSubscription()
+			.expectError(ResponseStatusException.class)
+			.verify();
+		
+		Mockito.verify(planetFacetIndexMock, Mockito.never()).recordFalseNegative(ArgumentMatchers.any());
+		Mockito.verify(planetFacetIndexMock, Mockito.never()).recordFalsePositive();
+	}
+	
+	@Test
+	@DisplayName("findById records a false positive when the id filter lets a missing id through")
+	public void findById_RecordsFalsePositive_WhenIdFilterPassesMissingId() {
+		BDDMockito.when(planetRepositoryMock.findById(ArgumentMatchers.anyInt()))
+			.thenReturn(Mono.empty());
+		
+		StepVerifier.create(planetService.findById(1))
+			.expectSubscription()
+			.expectError(ResponseStatusException.class)
+			.verify();
+		
+		Mockito.verify(planetFacetIndexMock).recordFalsePositive();
+	}
+	
+	@Test
+	@DisplayName("findById serves repeated lookups from the cache")
+	public void findById_ReturnsCachedPlanet_WhenCalledTwice() {
+		StepVerifier.create(planetService.findById(1).then(planetService.findById(1)))
+			.expectSubscription()
+			.expectNext(planetValid)
+			.verifyComplete();
+		
+		Mockito.verify(planetRepositoryMock, Mockito.times(1)).findById(1);
+	}
+	
+	@Test
+	@DisplayName("delete evicts the planet from the cache")
+	public void delete_EvictsCachedPlanet_WhenSuccessful() {
+		planetService.findById(1).block();
+		planetService.delete(1).block();
+		
+		BDDMockito.when(planetRepositoryMock.findById(ArgumentMatchers.anyInt()))
+			.thenReturn(Mono.empty());
+		
+		StepVerifier.create(planetService.findById(1))
+			.expectSubscription()
+			.expectError(ResponseStatusException.class)
+			.verify();
+	}
+	
 	@Test
 	@DisplayName("save creates a planet when successful")
 	public void save_CreatesPlanet_WhenSuccessful() {
@@ -119,6 +341,37 @@ class PlanetServiceTest {
 			.verifyComplete();
 	}
 
+	@Test
+	@DisplayName("save fills filmAppearences from SWAPI when the planet is known")
+	public void save_FillsFilmAppearences_WhenSwapiKnowsPlanet() {
+		Planet planetToSave = PlanetCreator.createPlanetToBeSaved();
+		BDDMockito.when(swapiCatalogueMock.findFilmAppearences(planetToSave.getName()))
+			.thenReturn(Mono.just(3L));
+		BDDMockito.when(planetRepositoryMock.save(planetToSave.withFilmAppearences(3L)))
+			.thenReturn(Mono.just(planetValid.withFilmAppearences(3L)));
+		
+		StepVerifier.create(planetService.save(planetToSave))
+			.expectSubscription()
+			.expectNext(planetValid.withFilmAppearences(3L))
+			.verifyComplete();
+	}
+
+	@Test
+	@DisplayName("save inserts new planets through the batcher when it is enabled")
+	public void save_InsertsThroughBatcher_WhenBatchingIsEnabled() {
+		Planet planetToSave = PlanetCreator.createPlanetToBeSaved();
+		BDDMockito.when(planetInsertBatcherMock.isEnabled()).thenReturn(true);
+		BDDMockito.when(planetInsertBatcherMock.insert(planetToSave)).thenReturn(Mono.just(planetValid));
+		
+		StepVerifier.create(planetService.save(planetToSave))
+			.expectSubscription()
+			.expectNext(planetValid)
+			.verifyComplete();
+		
+		Mockito.verify(planetRepositoryMock, Mockito.never()).save(ArgumentMatchers.any(Planet.class));
+		Assertions.assertEquals(planetValid, planetCache.get(planetValid.getId(), id -> Mono.empty()).block());
+	}
+
 	@Test
 	@DisplayName("saveAll creates a list of planet when successful")
 	public void saveAll_CreatesListPlanet_WhenSuccessful() {
@@ -130,6 +383,47 @@ class PlanetServiceTest {
 			.verifyComplete();
 	}
 	
+	@Test
+	@DisplayName("saveAll returns conflict when a planet sent without version already exists")
+	public void saveAll_ReturnsConflict_WhenPlanetAlreadyExists() {
+		BDDMockito.when(planetRepositoryMock.saveAll(List.of(planetValid.withVersion(null))))
+			.thenReturn(Flux.error(new DataIntegrityViolationException("Duplicate entry '1' for key 'PRIMARY'")));
+		
+		StepVerifier.create(planetService.saveAll(List.of(planetValid.withVersion(null))))
+			.expectSubscription()
+			.expectErrorMatches(e -> e instanceof ResponseStatusException
+					&& ((ResponseStatusException) e).getStatus() == HttpStatus.CONFLICT)
+			.verify();
+	}
+	
+	@Test
+	@DisplayName("save returns conflict when a planet without version takes an existing id")
+	public void save_ReturnsConflict_WhenPlanetAlreadyExists() {
+		BDDMockito.when(planetRepositoryMock.save(planetValid.withVersion(null)))
+			.thenReturn(Mono.error(new DataIntegrityViolationException("Duplicate entry '1' for key 'PRIMARY'")));
+		
+		StepVerifier.create(planetService.save(planetValid.withVersion(null)))
+			.expectSubscription()
+			.expectErrorMatches(e -> e instanceof ResponseStatusException
+					&& ((ResponseStatusException) e).getStatus() == HttpStatus.CONFLICT)
+			.verify();
+	}
+	
+	@Test
+	@DisplayName("save returns conflict when the version of the planet is stale")
+	public void save_ReturnsConflict_WhenVersionIsStale() {
+		BDDMockito.when(planetRepositoryMock.save(planetValid.withVersion(2L)))
+			.thenReturn(Mono.error(new OptimisticLockingFailureException("Failed to update table [planet]")));
+		
+		StepVerifier.create(planetService.save(planetValid.withVersion(2L)))
+			.expectSubscription()
+			.expectErrorMatches(e -> e instanceof ResponseStatusException
+					&& ((ResponseStatusException) e).getStatus() == HttpStatus.CONFLICT)
+			.verify();
+		
+		Mockito.verify(planetFacetIndexMock, Mockito.never()).put(ArgumentMatchers.any());
+	}
+	
 	@Test
 	@DisplayName("delete removes the planet when successful")
 	public void delete_RemovesPlanet_WhenSuccessful() {
@@ -140,9 +434,9 @@ class PlanetServiceTest {
 
 	@Test
 	@DisplayName("delete returns mono error when planet does not exist")
-	public void delete_ReturnMonoError_WhenEmptyMonoIsReturned() {
-		BDDMockito.when(planetRepositoryMock.findById(ArgumentMatchers.anyInt()))
-			.thenReturn(Mono.empty());
+	public void delete_ReturnMonoError_WhenNoRowIsAffected() {
+		BDDMockito.when(planetRepositoryMock.deletePlanet(ArgumentMatchers.anyInt()))
+			.thenReturn(Mono.just(0));
 		
 		StepVerifier.create(planetService.delete(1))
 			.expectSubscription()
@@ -160,9 +454,10 @@ class PlanetServiceTest {
 	
 	@Test
 	@DisplayName("update returns mono error when planet does not exist")
-	public void update_ReturnMonoError_WhenEmptyMonoIsReturned() {
-		BDDMockito.when(planetRepositoryMock.findById(ArgumentMatchers.anyInt()))
-			.thenReturn(Mono.empty());
+	public void update_ReturnMonoError_WhenNoRowIsAffected() {
+		BDDMockito.when(planetRepositoryMock.updatePlanet(ArgumentMatchers.anyInt(), ArgumentMatchers.any(),
+				ArgumentMatchers.any(), ArgumentMatchers.any(), ArgumentMatchers.any()))
+			.thenReturn(Mono.just(0));
 	
 		StepVerifier.create(planetService.update(PlanetCreator.createValidUpdatedPlanet()))
 			.expectSubscription()
@@ -170,4 +465,126 @@ class PlanetServiceTest {
 			.verify();
 	}
 	
+	@Test
+	@DisplayName("update sets the version in If-Match and returns the planet with the next one")
+	public void update_ReturnsNextVersion_WhenIfMatchIsCurrent() {
+		StepVerifier.create(planetService.update(PlanetCreator.createValidUpdatedPlanet(), "\"v3\""))
+			.expectSubscription()
+			.expectNext(PlanetCreator.createValidUpdatedPlanet().withVersion(4L))
+			.verifyComplete();
+		
+		Mockito.verify(planetRepositoryMock).updatePlanetVersion(ArgumentMatchers.eq(1), ArgumentMatchers.eq(3L),
+				ArgumentMatchers.any(), ArgumentMatchers.any(), ArgumentMatchers.any(), ArgumentMatchers.any());
+		Mockito.verify(planetRepositoryMock, Mockito.never()).updatePlanet(ArgumentMatchers.anyInt(), ArgumentMatchers.any(),
+				ArgumentMatchers.any(), ArgumentMatchers.any(), ArgumentMatchers.any());
+	}
+	
+	@Test
+	@DisplayName("update reads the version in If-Match from the tag of any encoding")
+	public void update_ReturnsNextVersion_WhenIfMatchNamesAnotherEncoding() {
+		StepVerifier.create(planetService.update(PlanetCreator.createValidUpdatedPlanet(), "\"v3-cbor\""))
+			.expectSubscription()
+			.expectNext(PlanetCreator.createValidUpdatedPlanet().withVersion(4L))
+			.verifyComplete();
+		
+		Mockito.verify(planetRepositoryMock).updatePlanetVersion(ArgumentMatchers.eq(1), ArgumentMatchers.eq(3L),
+				ArgumentMatchers.any(), ArgumentMatchers.any(), ArgumentMatchers.any(), ArgumentMatchers.any());
+	}
+	
+	@Test
+	@DisplayName("update reads the version in If-Match from the tag of a compressed representation")
+	public void update_ReturnsNextVersion_WhenIfMatchIsCompressedTag() {
+		StepVerifier.create(planetService.update(PlanetCreator.createValidUpdatedPlanet(), "\"v3-cbor-gzip\""))
+			.expectSubscription()
+			.expectNext(PlanetCreator.createValidUpdatedPlanet().withVersion(4L))
+			.verifyComplete();
+	}
+	
+	@Test
+	@DisplayName("update returns precondition failed when If-Match holds a weak tag")
+	public void update_ReturnMonoError_WhenIfMatchIsWeak() {
+		StepVerifier.create(planetService.update(PlanetCreator.createValidUpdatedPlanet(), "W/\"v3\""))
+			.expectSubscription()
+			.expectErrorMatches(e -> e instanceof ResponseStatusException
+					&& ((ResponseStatusException) e).getStatus() == HttpStatus.PRECONDITION_FAILED)
+			.verify();
+	}
+	
+	@Test
+	@DisplayName("update returns precondition failed when the version in If-Match is stale")
+	public void update_ReturnMonoError_WhenIfMatchIsStale() {
+		BDDMockito.when(planetRepositoryMock.updatePlanetVersion(ArgumentMatchers.anyInt(), ArgumentMatchers.anyLong(),
+				ArgumentMatchers.any(), ArgumentMatchers.any(), ArgumentMatchers.any(), ArgumentMatchers.any()))
+			.thenReturn(Mono.just(0));
+		
+		StepVerifier.create(planetService.update(PlanetCreator.createValidUpdatedPlanet(), "\"v3\""))
+			.expectSubscription()
+			.expectErrorMatches(e -> e instanceof ResponseStatusException
+					&& ((ResponseStatusException) e).getStatus() == HttpStatus.PRECONDITION_FAILED)
+			.verify();
+	}
+	
+	@Test
+	@DisplayName("update returns precondition failed without writing when If-Match names no version")
+	public void update_ReturnMonoError_WhenIfMatchIsUnknown() {
+		StepVerifier.create(planetService.update(PlanetCreator.createValidUpdatedPlanet(), "\"stale\""))
+			.expectSubscription()
+			.expectErrorMatches(e -> e instanceof ResponseStatusException
+					&& ((ResponseStatusException) e).getStatus() == HttpStatus.PRECONDITION_FAILED)
+			.verify();
+	}
+	
+	@Test
+	@DisplayName("update returns conflict when the version in the body is stale, and not found when the planet is gone")
+	public void update_ReturnMonoError_WhenBodyVersionIsStale() {
+		BDDMockito.when(planetRepositoryMock.updatePlanetVersion(ArgumentMatchers.anyInt(), ArgumentMatchers.anyLong(),
+				ArgumentMatchers.any(), ArgumentMatchers.any(), ArgumentMatchers.any(), ArgumentMatchers.any()))
+			.thenReturn(Mono.just(0));
+		Planet stale = PlanetCreator.createValidUpdatedPlanet().withVersion(2L);
+		
+		StepVerifier.create(planetService.update(stale))
+			.expectSubscription()
+			.expectErrorMatches(e -> e instanceof ResponseStatusException
+					&& ((ResponseStatusException) e).getStatus() == HttpStatus.CONFLICT)
+			.verify();
+		
+		BDDMockito.when(planetRepositoryMock.existsById(ArgumentMatchers.anyInt()))
+			.thenReturn(Mono.just(false));
+		
+		StepVerifier.create(planetService.update(stale))
+			.expectSubscription()
+			.expectErrorMatches(e -> e instanceof ResponseStatusException
+					&& ((ResponseStatusException) e).getStatus() == HttpStatus.NOT_FOUND)
+			.verify();
+	}
+	
+	@Test
+	@DisplayName("delete drops the encoded planet and the encoded pages")
+	public void delete_EvictsEncodedBodies_WhenSuccessful() {
+		byte[] encoded = planetJsonCache.planet(planetValid);
+		planetJsonCache.page("page", () -> Mono.just(new PlanetPage(List.of(planetValid), null))).block();
+		
+		planetService.delete(1).block();
+		
+		Assertions.assertNotSame(encoded, planetJsonCache.planet(planetValid));
+		Assertions.assertEquals(0, planetJsonCache.getPages().estimatedSize());
+	}
+	
+	@Test
+	@DisplayName("listingETag is derived from the page state in the database, one planet past the page")
+	public void listingETag_FollowsDatabase_WhenPageChanges() {
+		BDDMockito.when(planetRepositoryMock.findPageState(0, 101))
+			.thenReturn(Mono.just(new PlanetPageState(3, 3, 6, 0)), Mono.just(new PlanetPageState(2, 3, 4, 0)));
+		BDDMockito.when(planetRepositoryMock.findPageState(0, PlanetService.MAX_PAGE_SIZE + 1))
+			.thenReturn(Mono.just(new PlanetPageState(3, 3, 6, 0)));
+		
+		String before = planetService.listingETag(0, 100).block();
+		String after = planetService.listingETag(0, 100).block();
+		
+		Assertions.assertEquals("\"0-100-3-3-6-0\"", before);
+		Assertions.assertNotEquals(before, after);
+		Assertions.assertEquals(planetService.listingETag(0, PlanetService.MAX_PAGE_SIZE).block(),
+				planetService.listingETag(0, PlanetService.MAX_PAGE_SIZE * 2).block());
+	}
+	
 }
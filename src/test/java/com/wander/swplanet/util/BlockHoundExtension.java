@@ -0,0 +1,23 @@
+package com.wander.swplanet.util;
+
+import org.junit.jupiter.api.extension.BeforeAllCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+
+import reactor.blockhound.BlockHound;
+
+/**
+ * Installs BlockHound before the first test class of the run, registered for every class
+ * through extension auto-detection. Installed later, it instruments JDK classes while
+ * scheduler threads of earlier classes are parked in them, and can kill those threads or
+ * deadlock with a context being created.
+ */
+public class BlockHoundExtension implements BeforeAllCallback {
+
+	@Override
+	public void beforeAll(ExtensionContext context) {
+		BlockHound.install(builder -> 
+			builder
+				.allowBlockingCallsInside("javax.net.ssl.SSLContext", "init"));
+	}
+
+}
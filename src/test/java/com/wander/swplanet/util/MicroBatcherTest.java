@@ -0,0 +1,112 @@
+package com.wander.swplanet.util;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+class MicroBatcherTest {
+
+	private final List<List<Integer>> batches = new CopyOnWriteArrayList<>();
+
+	private final List<Integer> singles = new CopyOnWriteArrayList<>();
+
+	@Test
+	@DisplayName("submit flushes a full batch at once and hands each caller its own result")
+	public void submit_FlushesOneBatch_WhenMaxSizeIsReached() {
+		MicroBatcher<Integer, String> batcher = batcher(3, Duration.ofMinutes(1), this::planets);
+
+		StepVerifier.create(Flux.merge(batcher.submit(1), batcher.submit(2), batcher.submit(3)).collectList())
+			.expectNext(List.of("planet-1", "planet-2", "planet-3"))
+			.verifyComplete();
+
+		Assertions.assertEquals(List.of(List.of(1, 2, 3)), batches);
+		Assertions.assertEquals(0, batcher.waiting());
+	}
+
+	@Test
+	@DisplayName("submit flushes a partial batch once the delay is over")
+	public void submit_FlushesPartialBatch_WhenMaxDelayElapses() {
+		MicroBatcher<Integer, String> batcher = batcher(10, Duration.ofMillis(20), this::planets);
+
+		StepVerifier.create(Flux.merge(batcher.submit(1), batcher.submit(2)).collectSortedList())
+			.expectNext(List.of("planet-1", "planet-2"))
+			.verifyComplete();
+
+		Assertions.assertEquals(List.of(List.of(1, 2)), batches);
+	}
+
+	@Test
+	@DisplayName("submit leaves out of the batch the items whose submitter cancelled while waiting")
+	public void submit_SkipsItem_WhenSubmitterCancels() {
+		MicroBatcher<Integer, String> batcher = batcher(3, Duration.ofMinutes(1), this::planets);
+
+		batcher.submit(1).subscribe().dispose();
+
+		Assertions.assertEquals(0, batcher.waiting());
+		StepVerifier.create(Flux.merge(batcher.submit(2), batcher.submit(3), batcher.submit(4)).collectSortedList())
+			.expectNext(List.of("planet-2", "planet-3", "planet-4"))
+			.verifyComplete();
+
+		Assertions.assertEquals(List.of(List.of(2, 3, 4)), batches);
+	}
+
+	@Test
+	@DisplayName("submit retries the items of a batch failed by one of them one by one")
+	public void submit_RetriesEachItem_WhenBatchFailsOnAnItem() {
+		MicroBatcher<Integer, String> batcher = batcher(2, Duration.ofMinutes(1),
+				items -> Flux.error(new DataIntegrityViolationException("Duplicate planet")));
+
+		Mono<String> first = batcher.submit(1);
+		Mono<String> second = batcher.submit(2);
+
+		StepVerifier.create(Flux.merge(first.onErrorReturn("failed"), second.onErrorReturn("failed")).collectSortedList())
+			.expectNext(List.of("failed", "planet-1"))
+			.verifyComplete();
+
+		Assertions.assertEquals(List.of(1, 2), singles.stream().sorted().collect(Collectors.toList()));
+	}
+
+	@Test
+	@DisplayName("submit fails every item of a batch that failed for another reason without retrying them")
+	public void submit_FailsEachItem_WhenBatchFailsOtherwise() {
+		MicroBatcher<Integer, String> batcher = batcher(2, Duration.ofMinutes(1),
+				items -> Flux.error(new DataAccessResourceFailureException("Connection lost")));
+
+		Mono<String> first = batcher.submit(1);
+		Mono<String> second = batcher.submit(2);
+
+		StepVerifier.create(Flux.merge(first.onErrorResume(e -> Mono.just(e.getMessage())),
+				second.onErrorResume(e -> Mono.just(e.getMessage()))))
+			.expectNext("Connection lost", "Connection lost")
+			.verifyComplete();
+
+		Assertions.assertEquals(List.of(), singles);
+	}
+
+	private MicroBatcher<Integer, String> batcher(int maxSize, Duration maxDelay,
+			Function<List<Integer>, Flux<String>> batch) {
+		return new MicroBatcher<>(maxSize, maxDelay, batch, item -> {
+			singles.add(item);
+			return item == 1 ? Mono.just("planet-1") : Mono.error(new DataIntegrityViolationException("Duplicate planet"));
+		}, DataIntegrityViolationException.class::isInstance, Schedulers.parallel());
+	}
+
+	private Flux<String> planets(List<Integer> items) {
+		batches.add(items);
+		return Flux.fromIterable(items).map(item -> "planet-" + item);
+	}
+
+}
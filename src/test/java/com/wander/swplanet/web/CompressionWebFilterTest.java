@@ -0,0 +1,207 @@
+package com.wander.swplanet.web;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+class CompressionWebFilterTest {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	private final CompressionWebFilter filter = new CompressionWebFilter(meterRegistry, true, 1024, 6,
+			List.of("application/json", "application/x-ndjson"));
+
+	private final byte[] planets = "{\"name\":\"Tatooine\",\"climate\":\"arid\",\"terrain\":\"desert\"},".repeat(64)
+			.getBytes(StandardCharsets.UTF_8);
+
+	@Test
+	@DisplayName("filter gzips a body above the minimum size and reports its compression")
+	public void filter_CompressesWithGzip_WhenBodyIsLargeEnough() throws IOException {
+		MockServerWebExchange exchange = exchange("deflate, gzip;q=0.8");
+
+		filter.filter(exchange, write(MediaType.APPLICATION_JSON, planets)).block();
+
+		HttpHeaders headers = exchange.getResponse().getHeaders();
+		byte[] body = body(exchange);
+		Assertions.assertEquals("gzip", headers.getFirst(HttpHeaders.CONTENT_ENCODING));
+		Assertions.assertEquals(List.of(HttpHeaders.ACCEPT_ENCODING), headers.getVary());
+		Assertions.assertEquals(body.length, headers.getContentLength());
+		Assertions.assertTrue(body.length < planets.length / 4);
+		Assertions.assertArrayEquals(planets, new GZIPInputStream(new ByteArrayInputStream(body)).readAllBytes());
+		Assertions.assertEquals(1, meterRegistry.get(CompressionWebFilter.METRICS + ".ratio").tag("encoding", "gzip")
+				.summary().count());
+		Assertions.assertEquals(planets.length, meterRegistry.get(CompressionWebFilter.METRICS + ".original.size").tag("encoding", "gzip")
+				.summary().totalAmount());
+	}
+
+	@Test
+	@DisplayName("filter leaves small bodies and types outside the list uncompressed")
+	public void filter_LeavesBodyAsIs_WhenSmallOrNotAllowed() {
+		MockServerWebExchange small = exchange("gzip");
+		filter.filter(small, write(MediaType.APPLICATION_JSON, Arrays.copyOf(planets, 100))).block();
+
+		Assertions.assertNull(small.getResponse().getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+		Assertions.assertEquals(List.of(HttpHeaders.ACCEPT_ENCODING), small.getResponse().getHeaders().getVary());
+		Assertions.assertArrayEquals(Arrays.copyOf(planets, 100), body(small));
+
+		MockServerWebExchange image = exchange("gzip");
+		filter.filter(image, write(MediaType.IMAGE_PNG, planets)).block();
+
+		Assertions.assertNull(image.getResponse().getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+		Assertions.assertArrayEquals(planets, body(image));
+	}
+
+	@Test
+	@DisplayName("filter appends the encoding to the entity tag of a compressed body and leaves the others as they are")
+	public void filter_AppendsEncodingToETag_WhenBodyIsCompressed() {
+		MockServerWebExchange compressed = exchange("gzip");
+		filter.filter(compressed, write(MediaType.APPLICATION_JSON, "\"v3\"", planets)).block();
+
+		Assertions.assertEquals("\"v3-gzip\"", compressed.getResponse().getHeaders().getETag());
+
+		MockServerWebExchange deflated = exchange("deflate");
+		filter.filter(deflated, write(MediaType.APPLICATION_JSON, "\"v3-cbor\"", planets)).block();
+
+		Assertions.assertEquals("\"v3-cbor-deflate\"", deflated.getResponse().getHeaders().getETag());
+
+		MockServerWebExchange small = exchange("gzip");
+		filter.filter(small, write(MediaType.APPLICATION_JSON, "\"v3\"", Arrays.copyOf(planets, 100))).block();
+
+		Assertions.assertEquals("\"v3\"", small.getResponse().getHeaders().getETag());
+	}
+
+	@Test
+	@DisplayName("filter answers not modified with the compressed tag only when the client holds that encoding")
+	public void filter_ReturnsNotModified_WhenClientHoldsCompressedTag() {
+		MockServerWebExchange held = MockServerWebExchange.from(MockServerHttpRequest.get("/planets/1")
+				.header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+				.ifNoneMatch("\"v3-gzip\""));
+		filter.filter(held, writeUnlessNotModified("\"v3\"")).block();
+
+		Assertions.assertEquals(HttpStatus.NOT_MODIFIED, held.getResponse().getStatusCode());
+		Assertions.assertEquals("\"v3-gzip\"", held.getResponse().getHeaders().getETag());
+
+		MockServerWebExchange uncompressed = MockServerWebExchange.from(MockServerHttpRequest.get("/planets/1")
+				.header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+				.ifNoneMatch("\"v3\""));
+		filter.filter(uncompressed, writeUnlessNotModified("\"v3\"")).block();
+
+		Assertions.assertEquals(HttpStatus.NOT_MODIFIED, uncompressed.getResponse().getStatusCode());
+		Assertions.assertEquals("\"v3\"", uncompressed.getResponse().getHeaders().getETag());
+
+		MockServerWebExchange otherEncoding = MockServerWebExchange.from(MockServerHttpRequest.get("/planets/1")
+				.header(HttpHeaders.ACCEPT_ENCODING, "deflate")
+				.ifNoneMatch("\"v3-gzip\""));
+		filter.filter(otherEncoding, writeUnlessNotModified("\"v3\"")).block();
+
+		Assertions.assertNotEquals(HttpStatus.NOT_MODIFIED, otherEncoding.getResponse().getStatusCode());
+		Assertions.assertEquals("\"v3-deflate\"", otherEncoding.getResponse().getHeaders().getETag());
+	}
+
+	@Test
+	@DisplayName("filter compresses a streamed body of any size when the client accepts deflate only")
+	public void filter_CompressesStream_WhenDeflateIsAccepted() throws Exception {
+		MockServerWebExchange exchange = exchange("gzip;q=0, deflate");
+		byte[] line = "{\"name\":\"Hoth\"}\n".getBytes(StandardCharsets.UTF_8);
+
+		filter.filter(exchange, chain -> {
+			chain.getResponse().getHeaders().setContentType(MediaType.APPLICATION_NDJSON);
+			return chain.getResponse().writeAndFlushWith(Flux.just(line, line).map(bytes -> Mono.just(buffer(bytes))));
+		}).block();
+
+		Inflater inflater = new Inflater();
+		inflater.setInput(body(exchange));
+		byte[] inflated = new byte[line.length * 2];
+		Assertions.assertEquals(inflated.length, inflater.inflate(inflated));
+		Assertions.assertTrue(inflater.finished());
+		Assertions.assertEquals("deflate", exchange.getResponse().getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+	}
+
+	@Test
+	@DisplayName("compress with flush emits every byte written so far")
+	public void compress_EmitsWholeChunk_WhenFlushed() throws Exception {
+		ResponseCompressor compressor = new ResponseCompressor(ResponseCompressor.GZIP, 6);
+		byte[] line = "{\"name\":\"Naboo\"}\n".getBytes(StandardCharsets.UTF_8);
+
+		byte[] chunk = compressor.compress(ByteBuffer.wrap(line), true);
+
+		Inflater inflater = new Inflater(true);
+		inflater.setInput(chunk, 10, chunk.length - 10);
+		byte[] inflated = new byte[line.length];
+		Assertions.assertEquals(line.length, inflater.inflate(inflated));
+		Assertions.assertArrayEquals(line, inflated);
+		compressor.end();
+	}
+
+	@Test
+	@DisplayName("negotiate prefers gzip, honours q=0 and ignores unknown codings")
+	public void negotiate_ChoosesEncoding_WhenAcceptEncodingIsGiven() {
+		Assertions.assertEquals("gzip", CompressionWebFilter.negotiate(List.of("br, deflate, gzip")));
+		Assertions.assertEquals("gzip", CompressionWebFilter.negotiate(List.of("*")));
+		Assertions.assertEquals("deflate", CompressionWebFilter.negotiate(List.of("gzip; q=0", "deflate")));
+		Assertions.assertNull(CompressionWebFilter.negotiate(List.of("br, identity")));
+		Assertions.assertNull(CompressionWebFilter.negotiate(null));
+	}
+
+	private MockServerWebExchange exchange(String acceptEncoding) {
+		return MockServerWebExchange.from(MockServerHttpRequest.get("/planets")
+				.header(HttpHeaders.ACCEPT_ENCODING, acceptEncoding));
+	}
+
+	private WebFilterChain write(MediaType contentType, byte[] bytes) {
+		return write(contentType, null, bytes);
+	}
+
+	private WebFilterChain write(MediaType contentType, String eTag, byte[] bytes) {
+		return exchange -> {
+			exchange.getResponse().getHeaders().setContentType(contentType);
+			exchange.getResponse().getHeaders().setETag(eTag);
+			return exchange.getResponse().writeWith(Mono.just(buffer(bytes)));
+		};
+	}
+
+	private WebFilterChain writeUnlessNotModified(String eTag) {
+		return exchange -> {
+			exchange.getResponse().getHeaders().setETag(eTag);
+			if (exchange.checkNotModified(eTag)) {
+				return exchange.getResponse().setComplete();
+			}
+			exchange.getResponse().getHeaders().setContentType(MediaType.APPLICATION_JSON);
+			return exchange.getResponse().writeWith(Mono.just(buffer(planets)));
+		};
+	}
+
+	private DataBuffer buffer(byte[] bytes) {
+		return DefaultDataBufferFactory.sharedInstance.wrap(bytes);
+	}
+
+	private byte[] body(MockServerWebExchange exchange) {
+		DataBuffer joined = DataBufferUtils.join(exchange.getResponse().getBody()).block();
+		byte[] bytes = new byte[joined.readableByteCount()];
+		joined.read(bytes);
+		return bytes;
+	}
+
+}